@@ -0,0 +1,57 @@
+package benchmarks;
+
+import handlers.MenuHandler;
+import handlers.RecordFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering the record screens of the Display Reports menu.
+ * Console output is discarded so only the rendering is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class DisplayBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    private MenuHandler menu;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Portfolio.populate(records, 42);
+        menu = MenuHandler.getInstance();
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void displayTenants() {
+        menu.displayTenants(RecordFilter.NONE, 0);
+    }
+
+    @Benchmark
+    public void displayRent() {
+        menu.displayRent(RecordFilter.NONE, 0);
+    }
+
+    @Benchmark
+    public void displayExpenses() {
+        menu.displayExpenses(RecordFilter.NONE, 0);
+    }
+
+}
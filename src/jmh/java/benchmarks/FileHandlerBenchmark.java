@@ -0,0 +1,46 @@
+package benchmarks;
+
+import handlers.FileHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading and saving the whole ledger.
+ * loadData includes Tenant indexing and Rent validation (Rent.loadRent).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class FileHandlerBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int records;
+
+    @Param({"false", "true"})
+    public boolean binary;
+
+    private FileHandler file;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        file = FileHandler.getInstance();
+        file.setBinarySnapshots(binary);
+        Portfolio.populate(records, 42);
+        Portfolio.save();
+    }
+
+    @Benchmark
+    public boolean loadData() {
+        return file.loadData();
+    }
+
+    @Benchmark
+    public boolean saveData() {
+        return file.saveData();
+    }
+
+}
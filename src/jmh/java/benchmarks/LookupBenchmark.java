@@ -0,0 +1,61 @@
+package benchmarks;
+
+import data.AnnualReport;
+import data.Rent;
+import data.Tenant;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory lookups used by the menus and reports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int records;
+
+    private Portfolio portfolio;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        portfolio = Portfolio.populate(records, 42);
+    }
+
+    @Benchmark
+    public Tenant getTenantByID() {
+        return Tenant.getTenantByID(portfolio.getTenantId(next++));
+    }
+
+    @Benchmark
+    public Tenant getCurrentTenant() {
+        return Tenant.getCurrentTenant(100 + (next++ % portfolio.getTenantCount()));
+    }
+
+    @Benchmark
+    public boolean isDuplicate() {
+        Tenant t = Tenant.getTenantByID(portfolio.getTenantId(next++));
+        return Rent.isDuplicate(t, Portfolio.START_YEAR, 1, 1000);
+    }
+
+    @Benchmark
+    public List<Rent> rentBetween() {
+        LocalDate month = LocalDate.of(Portfolio.START_YEAR + (next++ % portfolio.getYears()), 3, 1);
+        return Rent.between(month, month.plusMonths(1).minusDays(1));
+    }
+
+    @Benchmark
+    public String generateReport() {
+        return AnnualReport.generateReport(Portfolio.START_YEAR + (next++ % portfolio.getYears()));
+    }
+
+}
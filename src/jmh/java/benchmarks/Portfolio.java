@@ -0,0 +1,78 @@
+package benchmarks;
+
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import handlers.FileHandler;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Builds a synthetic portfolio in memory for benchmarking.
+ * Sized by the number of Rent records, Tenants and Expenses are derived from it:
+ * one Tenant per 60 payments (5 years of rent) and one Expense per 10 payments.
+ */
+public final class Portfolio {
+
+    public static final int START_YEAR = 2000;
+    private static final String[] CATEGORIES = {"Repairing", "Utilities", "Insurance", "Taxes", "Landscaping", "Cleaning"};
+    private static final String[] PAYEES = {"Bob's Hardware", "Big Electric Co", "City Water", "State Farm", "County Assessor", "Green Thumb"};
+
+    private final UUID[] tenantIds;
+    private final int years;
+
+    private Portfolio(UUID[] tenantIds, int years) {
+        this.tenantIds = tenantIds;
+        this.years = years;
+    }
+
+    /**
+     * Adds a synthetic portfolio to the data classes.
+     * Benchmarks fork a fresh JVM per parameter set, so the data classes start out empty.
+     * @param records Number of Rent records to create.
+     * @param seed Random seed, the same seed always builds the same portfolio.
+     * @return Portfolio describing what was created.
+     */
+    public static Portfolio populate(int records, long seed) {
+        Random random = new Random(seed);
+        int tenantCount = Math.max(1, records / 60);
+        int expenseCount = Math.max(1, records / 10);
+
+        Tenant[] tenants = new Tenant[tenantCount];
+        UUID[] ids = new UUID[tenantCount];
+        for (int i = 0; i < tenantCount; i++) {
+            tenants[i] = Tenant.addTenant("Tenant " + i, 100 + (i % Math.max(1, tenantCount / 4)));
+            ids[i] = tenants[i].getId();
+        }
+
+        // Each Tenant pays consecutive months, spread over the years of the portfolio
+        int years = Math.max(1, (records / tenantCount + 11) / 12);
+        for (int i = 0; i < records; i++) {
+            Tenant t = tenants[i % tenantCount];
+            int month = i / tenantCount;
+            Rent.addRent(t, START_YEAR + month / 12, month % 12 + 1, 900 + random.nextInt(1200));
+        }
+
+        for (int i = 0; i < expenseCount; i++) {
+            int c = random.nextInt(CATEGORIES.length);
+            Expense.addExpense(START_YEAR + random.nextInt(years), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    CATEGORIES[c], PAYEES[c], 10 + random.nextInt(5000) / 100.0);
+        }
+        return new Portfolio(ids, years);
+    }
+
+    /**
+     * Saves the portfolio in memory to the save files.
+     */
+    public static void save() {
+        if (!FileHandler.getInstance().saveData()) {
+            throw new IllegalStateException("Failed to save benchmark portfolio.");
+        }
+    }
+
+    public UUID getTenantId(int i) { return tenantIds[i % tenantIds.length]; }
+    public int getTenantCount() { return tenantIds.length; }
+    public int getYears() { return years; }
+
+}
@@ -1,26 +1,139 @@
 import handlers.*;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
 
     public static void main(String[] args) {
 
+        // Generate a synthetic portfolio instead of running the program
+        // Usage: --generate <directory> <apartments> <start year> <years> <expenses per month> [seed]
+        if (args.length > 0 && args[0].equals("--generate")) {
+            if (args.length < 6) {
+                MenuHandler.systemMessage("Usage: --generate <directory> <apartments> <start year> <years> <expenses per month> [seed]");
+                return;
+            }
+            try {
+                long seed = args.length > 6 ? Long.parseLong(args[6]) : 343L;
+                PortfolioGenerator.generate(new File(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                        Integer.parseInt(args[4]), Integer.parseInt(args[5]), seed);
+            } catch (NumberFormatException e) {
+                MenuHandler.systemMessage("Apartments, start year, years, expenses per month and seed must be numbers.");
+            }
+            return;
+        }
+
         MenuHandler menu = MenuHandler.getInstance();
         FileHandler file = FileHandler.getInstance();
 
+        // Publish timings and store sizes through JMX and Flight Recorder
+        Metrics.register();
+
+        // Save Rent and Expenses in the binary format if requested
+        if (Arrays.asList(args).contains("--binary")) {
+            file.setBinarySnapshots(true);
+        }
+
+        // Save Rent and Expenses in one directory per month if requested
+        if (Arrays.asList(args).contains("--sharded")) {
+            file.setSharded(true);
+        }
+
+        // Keep only the most recent years in memory if requested, older years are archived
+        // Usage: --archive [years in memory, default 2]
+        int archive = Arrays.asList(args).indexOf("--archive");
+        if (archive >= 0) {
+            int years = 2;
+            if (archive + 1 < args.length && !args[archive + 1].startsWith("--")) {
+                try {
+                    years = Integer.parseInt(args[archive + 1]);
+                } catch (NumberFormatException e) {
+                    MenuHandler.systemMessage("Years must be a number, keeping " + years + " years in memory.");
+                }
+            }
+            file.setArchive(years);
+        }
+
+        // Run commands from a file (or stdin with "-") without menus, saved in the format chosen above
+        // Usage: --script <file | -> [--binary] [--sharded] [--archive [years]]
+        if (args.length > 0 && args[0].equals("--script")) {
+            if (args.length < 2 || args[1].startsWith("--")) {
+                MenuHandler.systemMessage("Usage: --script <file | -> [--binary] [--sharded] [--archive [years]]");
+                return;
+            }
+            runScript(file, args[1]);
+            return;
+        }
+
+        // Load Saved Data in the background while the user logs in
+        file.startLoading();
 
         // While Login Invalid...
         menu.promptLogin();
 
-        // Load Saved Data
-        file.loadData();
+        // Save in the background while the menus are in use
+        file.setWriteBehind(true);
+
+        // Serve the data as JSON alongside the menus if requested
+        // Usage: --server [port]
+        int server = Arrays.asList(args).indexOf("--server");
+        if (server >= 0) {
+            int port = 8343;
+            if (server + 1 < args.length && !args[server + 1].startsWith("--")) {
+                try {
+                    port = Integer.parseInt(args[server + 1]);
+                } catch (NumberFormatException e) {
+                    MenuHandler.systemMessage("Port must be a number, using " + port + ".");
+                }
+            }
+            ServerHandler.getInstance().start(port);
+        }
 
         // Prompt Main Menu
         menu.promptMainMenu();
 
-        // Save Current Data
+        // Stop serving before the final save
+        ServerHandler.getInstance().stop();
+
+        // Save Current Data and wait for it to reach the disk
         file.saveData();
+        file.flush();
+
+    }
 
+    /**
+     * Runs a command script through ScriptHandler and saves once at the end.
+     * All output, including system messages, goes through one buffered stream.
+     * @param file FileHandler instance.
+     * @param source Path of the script, "-" for stdin.
+     */
+    private static void runScript(FileHandler file, String source) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        System.setOut(out);
+        try (BufferedReader in = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            file.loadData();
+            int failures = ScriptHandler.getInstance().run(in, out);
+            file.saveData();
+            MenuHandler.systemMessage("Script finished with " + failures + " failed commands.");
+        } catch (IOException e) {
+            e.printStackTrace(out);
+            MenuHandler.systemMessage("Failed to read the script, please check the file path.");
+        } finally {
+            out.flush();
+        }
     }
 
 }
@@ -1,6 +1,15 @@
 package data;
 
+import handlers.Metrics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class AnnualReport {
 
@@ -12,34 +21,214 @@ public class AnnualReport {
                      ----------------------
                     Net Income:      %.2f 
                     """;
+    private static final String BREAKDOWN_OUT =
+            """
+                     Breakdown Report (%d - %d)
+                    """;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final String NO_CATEGORY = "(none)";
+
+    /**
+     * Totals of one year, used for the report and anything else that needs the numbers.
+     * @param year Year of the totals.
+     * @param earnings Total rent received.
+     * @param expenses Total expenses paid, as a positive amount.
+     * @param net Earnings minus expenses.
+     */
+    public record Totals(int year, double earnings, double expenses, double net) {}
+
+    /**
+     * Calculates rent profits and expenses for a year.
+     * @return Totals of the year
+     */
+    public static Totals generateTotals(int year) {
+        Metrics.Timer timer = Metrics.start(Metrics.ANNUAL_REPORT);
+        double earnings = Rent.getTotalByYear(year);
+        double expenses = Expense.getTotalByYear(year);
+        timer.stop();
+        return new Totals(year, earnings, expenses, earnings - expenses);
+    }
 
     /**
      * Calculates rent profits and expenses. Subtracts profits from expenses to get balances
      * @return String of report
      */
     public static String generateReport(int year){
-        double earnings = 0.0;
-        double expenses = 0.0;
-
-        if (Rent.getRent() != null) {
-            for (Rent r : Rent.getRent()) {
-                if (r.getDate().getYear() == year) {
-                    earnings += r.getPayment();
-                }
+        Totals totals = generateTotals(year);
+
+        return String.format(REPORT_OUT, year, totals.earnings(), totals.expenses()*-1.0, totals.net());
+
+    }
+
+    /**
+     * Totals of a range of years grouped by month, apartment and expense category.
+     * Amounts are positive, months / apartments / categories without any payments are left out.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @param rentByMonth Rent received per month.
+     * @param expensesByMonth Expenses paid per month.
+     * @param rentByApartment Rent received per apartment number.
+     * @param expensesByCategory Expenses paid per category.
+     */
+    public record Breakdown(int fromYear, int toYear,
+                            SortedMap<YearMonth, Double> rentByMonth,
+                            SortedMap<YearMonth, Double> expensesByMonth,
+                            SortedMap<Integer, Double> rentByApartment,
+                            SortedMap<String, Double> expensesByCategory) {}
+
+    /**
+     * Calculates the totals of a range of years grouped by month, apartment and expense category.
+     * Every grouping comes from one parallel pass over the Rent and one over the Expenses in the range,
+     * each thread totals its own chunk of rows and the partial totals are merged at the end.
+     * Rows outside the range are skipped through the date index and never read.
+     * Archived years in the range are read from the Archive and totalled the same way.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @return Breakdown of the range, empty if there is no data or toYear is before fromYear.
+     */
+    public static Breakdown generateBreakdown(int fromYear, int toYear) {
+        Metrics.Timer timer = Metrics.start(Metrics.BREAKDOWN_REPORT);
+        long rowCount = 0;
+        int months = Math.max(0, toYear - fromYear + 1) * 12;
+        TreeMap<YearMonth, Double> rentByMonth = new TreeMap<>();
+        TreeMap<YearMonth, Double> expensesByMonth = new TreeMap<>();
+        TreeMap<Integer, Double> rentByApartment = new TreeMap<>();
+        TreeMap<String, Double> expensesByCategory = new TreeMap<>();
+        int first = DateIndex.toDay(LocalDate.of(fromYear, 1, 1), false);
+        int last = months > 0 ? DateIndex.toDay(LocalDate.of(toYear, 12, 31), true) : first - 1;
+
+        ArrayList<Rent.Ledger> rentLedgers = new ArrayList<>();
+        ArrayList<Expense.Ledger> expenseLedgers = new ArrayList<>();
+        if (months > 0) {
+            for (ArchiveCache.Year archived : ArchiveCache.years(fromYear, toYear)) {
+                if (archived.rent() != null) { rentLedgers.add(archived.rent()); }
+                if (archived.expenses() != null) { expenseLedgers.add(archived.expenses()); }
+            }
+            if (Rent.ledger() != null) { rentLedgers.add(Rent.ledger()); }
+            if (Expense.ledger() != null) { expenseLedgers.add(Expense.ledger()); }
+        }
+
+        for (Rent.Ledger rent : rentLedgers) {
+            LedgerColumns.Snapshot columns = rent.columns().snapshot();
+            int[] rows = rent.dates().between(columns, first, last);
+            rowCount += rows.length;
+            Partial totals = aggregate(columns, rows, Rent.DAY, Rent.TENANT, rent.tenants().size(), fromYear, months);
+            toMonths(totals.byMonth, fromYear, rentByMonth);
+            for (int id = 0; id < totals.byKey.length; id++) {
+                if (totals.byKey[id] == 0) { continue; }
+                rentByApartment.merge(rent.tenants().decode(id).getAptNum(), LedgerColumns.fromCents(totals.byKey[id]), Double::sum);
             }
         }
 
-        if (Expense.getExpenses() != null) {
-            for (Expense e : Expense.getExpenses()) {
-                if (e.getDate().getYear() == year) {
-                    expenses += e.getPayment();
-                }
+        for (Expense.Ledger expenses : expenseLedgers) {
+            LedgerColumns.Snapshot columns = expenses.columns().snapshot();
+            int[] rows = expenses.dates().between(columns, first, last);
+            rowCount += rows.length;
+            Partial totals = aggregate(columns, rows, Expense.DAY, Expense.CATEGORY, expenses.strings().size(), fromYear, months);
+            toMonths(totals.byMonth, fromYear, expensesByMonth);
+            for (int id = 0; id < totals.byKey.length; id++) {
+                if (totals.byKey[id] == 0) { continue; }
+                String category = expenses.strings().decode(id);
+                expensesByCategory.merge(category == null || category.isBlank() ? NO_CATEGORY : category,
+                        LedgerColumns.fromCents(totals.byKey[id]), Double::sum);
+            }
+            if (totals.noKey != 0) {
+                expensesByCategory.merge(NO_CATEGORY, LedgerColumns.fromCents(totals.noKey), Double::sum);
             }
         }
 
-        expenses = expenses*-1.0;
+        timer.stop(rowCount, 0);
+        return new Breakdown(fromYear, toYear,
+                Collections.unmodifiableSortedMap(rentByMonth), Collections.unmodifiableSortedMap(expensesByMonth),
+                Collections.unmodifiableSortedMap(rentByApartment), Collections.unmodifiableSortedMap(expensesByCategory));
+    }
+
+    /**
+     * Formats the breakdown of a range of years.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @return String of report
+     */
+    public static String generateBreakdownReport(int fromYear, int toYear) {
+        Breakdown b = generateBreakdown(fromYear, toYear);
+        StringBuilder report = new StringBuilder(String.format(BREAKDOWN_OUT, fromYear, toYear));
+
+        report.append(String.format(" %-9s %14s %14s %14s%n", "Month", "Earnings", "Expenses", "Net"));
+        TreeMap<YearMonth, Double> months = new TreeMap<>(b.rentByMonth());
+        b.expensesByMonth().keySet().forEach(m -> months.putIfAbsent(m, 0.0));
+        for (YearMonth month : months.keySet()) {
+            double earnings = b.rentByMonth().getOrDefault(month, 0.0);
+            double expenses = b.expensesByMonth().getOrDefault(month, 0.0);
+            report.append(String.format(" %-9s %14.2f %14.2f %14.2f%n", month, earnings, expenses*-1.0, earnings - expenses));
+        }
+
+        report.append(String.format("%n %-24s %14s%n", "Apartment", "Earnings"));
+        b.rentByApartment().forEach((apt, total) -> report.append(String.format(" %-24d %14.2f%n", apt, total)));
+
+        report.append(String.format("%n %-24s %14s%n", "Category", "Expenses"));
+        b.expensesByCategory().forEach((category, total) -> report.append(String.format(" %-24s %14.2f%n", category, total*-1.0)));
+
+        return report.toString();
+    }
+
+    /**
+     * Totals in cents of one chunk of rows, per month of the range and per dictionary id.
+     */
+    private static final class Partial {
+        private final long[] byMonth;
+        private final long[] byKey;
+        private long noKey;
+
+        private Partial(int months, int keys) {
+            byMonth = new long[months];
+            byKey = new long[keys];
+        }
+
+        private Partial merge(Partial other) {
+            for (int i = 0; i < byMonth.length; i++) { byMonth[i] += other.byMonth[i]; }
+            for (int i = 0; i < byKey.length; i++) { byKey[i] += other.byKey[i]; }
+            noKey += other.noKey;
+            return this;
+        }
+    }
+
+    /**
+     * Totals rows of a ledger by month and by the id in the key column.
+     * Rows are split into at most one chunk per worker thread (and no chunk smaller than CHUNK_SIZE),
+     * so only that many Partials are allocated however large the ledger is. Chunks are totalled in parallel and merged.
+     * @param rows Rows to total, all dated within the months of the range.
+     */
+    private static Partial aggregate(LedgerColumns.Snapshot columns, int[] rows, int dayColumn, int keyColumn, int keys, int fromYear, int months) {
+        int[] days = columns.ints()[dayColumn];
+        int[] ids = columns.ints()[keyColumn];
+        long[] cents = columns.cents();
+        int chunks = Math.max(1, Math.min((rows.length + CHUNK_SIZE - 1) / CHUNK_SIZE, ForkJoinPool.getCommonPoolParallelism() + 1));
+        int chunkSize = (rows.length + chunks - 1) / chunks;
 
-        return String.format(REPORT_OUT, year, earnings, expenses, earnings+expenses);
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    Partial partial = new Partial(months, keys);
+                    int to = (int) Math.min(rows.length, (long) (c + 1) * chunkSize);
+                    for (int i = c * chunkSize; i < to; i++) {
+                        int row = rows[i];
+                        LocalDate date = LocalDate.ofEpochDay(days[row]);
+                        partial.byMonth[(date.getYear() - fromYear) * 12 + date.getMonthValue() - 1] += cents[row];
+                        if (ids[row] == Dictionary.NULL_ID) {
+                            partial.noKey += cents[row];
+                        } else {
+                            partial.byKey[ids[row]] += cents[row];
+                        }
+                    }
+                    return partial;
+                })
+                .reduce(Partial::merge)
+                .orElseGet(() -> new Partial(months, keys));
+    }
 
+    private static void toMonths(long[] byMonth, int fromYear, TreeMap<YearMonth, Double> out) {
+        for (int i = 0; i < byMonth.length; i++) {
+            if (byMonth[i] == 0) { continue; }
+            out.merge(YearMonth.of(fromYear + i / 12, i % 12 + 1), LedgerColumns.fromCents(byMonth[i]), Double::sum);
+        }
     }
-}
\ No newline at end of file
+}
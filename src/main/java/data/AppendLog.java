@@ -0,0 +1,124 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only list that can be read while it is being written to.
+ * Appends are O(1) (amortized) and serialized by the log itself.
+ * snapshot() is O(1) and returns an immutable view of the elements appended so far,
+ * later appends never show up in or disturb a snapshot that was already taken.
+ * @param <T> Type of the elements.
+ */
+final class AppendLog<T> {
+
+    /**
+     * Backing array and the number of elements published in it.
+     * Slots below size are never written again, so a State can be shared with readers.
+     */
+    private record State(Object[] elements, int size) {}
+
+    private volatile State state;
+
+    AppendLog() {
+        state = new State(new Object[16], 0);
+    }
+
+    /**
+     * Creates a log holding the given elements.
+     * @param data Elements to copy into the log.
+     */
+    AppendLog(Collection<? extends T> data) {
+        Object[] elements = data.toArray(new Object[Math.max(16, data.size())]);
+        state = new State(elements, data.size());
+    }
+
+    /**
+     * Adds an element to the end of the log.
+     * @param element Element to add.
+     */
+    synchronized void append(T element) {
+        State s = state;
+        Object[] elements = ensureCapacity(s, s.size() + 1);
+        elements[s.size()] = element;
+        state = new State(elements, s.size() + 1);
+    }
+
+    /**
+     * Adds many elements to the end of the log, published to readers all at once.
+     * @param data Elements to add.
+     */
+    synchronized void appendAll(Collection<? extends T> data) {
+        State s = state;
+        Object[] elements = ensureCapacity(s, s.size() + data.size());
+        int size = s.size();
+        for (T element : data) {
+            elements[size++] = element;
+        }
+        state = new State(elements, size);
+    }
+
+    /**
+     * Returns the elements appended so far.
+     * @return Immutable List, unaffected by later appends.
+     */
+    List<T> snapshot() {
+        return new Snapshot<>(state);
+    }
+
+    int size() {
+        return state.size();
+    }
+
+    /**
+     * Returns an element appended earlier, without taking a snapshot.
+     * @param index Position of the element, must be below a size() read before the call.
+     * @return Element at the position.
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        State s = state;
+        if (index < 0 || index >= s.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + s.size());
+        }
+        return (T) s.elements()[index];
+    }
+
+    private static Object[] ensureCapacity(State s, int capacity) {
+        Object[] elements = s.elements();
+        if (capacity <= elements.length) { return elements; }
+        Object[] grown = new Object[Math.max(capacity, elements.length + (elements.length >> 1))];
+        System.arraycopy(elements, 0, grown, 0, s.size());
+        return grown;
+    }
+
+    /**
+     * Read-only view of one State.
+     */
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] elements;
+        private final int size;
+
+        private Snapshot(State state) {
+            this.elements = state.elements();
+            this.size = state.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package data;
+
+import handlers.FileHandler;
+import handlers.MenuHandler;
+import handlers.Metrics;
+import handlers.YearArchive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * LRU cache of the closed years of Rent and Expenses, which are not loaded at startup.
+ * A year is read from the YearArchive the first time a query, display or report needs it
+ * and kept in columns, the least recently used year is dropped when the cache is full.
+ * Years in memory (Rent.getRent() / Expense.getExpenses()) are never evicted.
+ */
+public final class ArchiveCache {
+
+    private static final int CACHED_YEARS = 3;
+    private static volatile YearArchive source;
+    private static volatile NavigableSet<Integer> years = Collections.emptyNavigableSet();
+    private static final LinkedHashMap<Integer, Year> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Year> eldest) {
+            return size() > CACHED_YEARS;
+        }
+    };
+
+    /**
+     * One archived year read into columns.
+     * @param year Year of the rows.
+     * @param rent Rent of the year, null if there is none.
+     * @param rentCents Total rent of the year in cents.
+     * @param expenses Expenses of the year, null if there are none.
+     * @param expenseCents Total expenses of the year in cents.
+     */
+    record Year(int year, Rent.Ledger rent, long rentCents, Expense.Ledger expenses, long expenseCents) {}
+
+    private ArchiveCache() {}
+
+    /**
+     * Uses a new archive, dropping every cached year.
+     * Can only be called from FileHandler.class
+     * @param archive Archive to read closed years from, null for none.
+     * @return True if successful, False otherwise.
+     */
+    public static synchronized boolean open(YearArchive archive) {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        if ((stack.length >= 3) && !(stack[2].getClassName().equals(FileHandler.class.getName()))) {
+            MenuHandler.systemMessage("An unknown class tried to change the archive.");
+            return false;
+        }
+        cache.clear();
+        source = archive;
+        years = archive == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(new TreeSet<>(archive.years()));
+        return true;
+    }
+
+    /**
+     * Returns the years that are archived.
+     * @return Sorted, unmodifiable set of years.
+     */
+    public static SortedSet<Integer> getYears() {
+        return years;
+    }
+
+    public static boolean isArchived(int year) {
+        return years.contains(year);
+    }
+
+    /**
+     * Returns an archived year, reading it if it is not cached.
+     * @param year Year to return.
+     * @return Year, null if it is not archived or cannot be read.
+     */
+    static synchronized Year year(int year) {
+        if (!isArchived(year)) { return null; }
+        Year cached = cache.get(year);
+        if (cached != null) { return cached; }
+
+        Metrics.Timer timer = Metrics.start(Metrics.ARCHIVE_READ);
+        try {
+            ArrayList<Rent> rent = source.readRent(year);
+            ArrayList<Expense> expenses = source.readExpenses(year);
+            if (rent.removeIf(r -> r.getTenant() == null)) {
+                MenuHandler.systemMessage("Rent of Tenants that no longer exist found in the archive of " + year + "... Ignoring...");
+            }
+            Rent.Ledger rentLedger = rent.isEmpty() ? null : Rent.ledgerOf(rent);
+            Expense.Ledger expenseLedger = expenses.isEmpty() ? null : Expense.ledgerOf(expenses);
+            Year y = new Year(year, rentLedger, sum(rentLedger == null ? null : rentLedger.columns()),
+                    expenseLedger, sum(expenseLedger == null ? null : expenseLedger.columns()));
+            cache.put(year, y);
+            timer.stop(rent.size() + expenses.size(), 0);
+            return y;
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to read the archive of " + year + ", please see System Administrator.");
+            return null;
+        }
+    }
+
+    /**
+     * Returns every archived year in a range, oldest first.
+     * @param from First year (inclusive).
+     * @param to Last year (inclusive).
+     * @return Years that could be read.
+     */
+    static List<Year> years(int from, int to) {
+        ArrayList<Year> result = new ArrayList<>();
+        if (from > to) { return result; }
+        for (int year : years.subSet(from, true, to, true)) {
+            Year y = year(year);
+            if (y != null) { result.add(y); }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the heap used by the cached years.
+     * @return Estimated bytes.
+     */
+    public static synchronized long getHeapEstimate() {
+        long bytes = 0;
+        for (Year y : cache.values()) {
+            if (y.rent() != null) { bytes += Rent.heapEstimate(y.rent()); }
+            if (y.expenses() != null) { bytes += Expense.heapEstimate(y.expenses()); }
+        }
+        return bytes;
+    }
+
+    private static long sum(LedgerColumns columns) {
+        if (columns == null) { return 0; }
+        LedgerColumns.Snapshot s = columns.snapshot();
+        long total = 0;
+        for (int i = 0; i < s.size(); i++) {
+            total += s.cents()[i];
+        }
+        return total;
+    }
+
+}
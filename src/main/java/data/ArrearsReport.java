@@ -0,0 +1,382 @@
+package data;
+
+import handlers.Metrics;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Finds missing and partial rent payments for every Tenant, and apartments left vacant between Tenants.
+ *
+ * There are no move-in / move-out dates, so occupancy is taken from the rent itself:
+ * a Tenant moves in the month of their first payment, a Tenant who was replaced moves out the month of their last payment,
+ * and the current Tenant of an apartment is still living there. Months between two Tenants are vacant.
+ * The expected rent of a month is the rent in force at the time, the monthly total paid most often in the twelve months
+ * up to and including it (the larger total on a tie), so a rent increase is followed from the month it starts.
+ * In a Tenant's first year the twelve months are the first twelve of the tenancy, so a short first payment is not taken as the rent.
+ * Months paid below it are partial.
+ * Archived years are read from the year before the range onwards, so a Tenant who paid in that year
+ * is known to have moved in before the range.
+ */
+public class ArrearsReport {
+
+    private static final String ARREARS_OUT =
+            """
+                     Arrears Report (%d - %d)
+                    """;
+    // Months the rent in force is taken from
+    private static final int WINDOW = 12;
+
+    /**
+     * Arrears of one Tenant.
+     * @param tenant Tenant in arrears.
+     * @param expected Monthly rent in force in the last occupied month of the range.
+     * @param missing Months occupied without any payment.
+     * @param partial Months paid below the expected rent, with the amount paid.
+     */
+    public record TenantArrears(Tenant tenant, double expected, List<YearMonth> missing, SortedMap<YearMonth, Double> partial) {}
+
+    /**
+     * Months an apartment had no Tenant.
+     * @param aptNum Apartment number.
+     * @param from First vacant month.
+     * @param to Last vacant month (inclusive).
+     */
+    public record Vacancy(int aptNum, YearMonth from, YearMonth to) {}
+
+    /**
+     * Arrears of a range of years, months after the current month are not due yet and are left out.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @param tenants Tenants with missing or partial payments.
+     * @param vacancies Vacant months between Tenants.
+     * @param noPayments Current Tenants without any rent recorded.
+     */
+    public record Arrears(int fromYear, int toYear, List<TenantArrears> tenants, List<Vacancy> vacancies, List<Tenant> noPayments) {}
+
+    /**
+     * Calculates the arrears of every Tenant for a range of years.
+     * A first pass over the Rent finds the months each Tenant paid in, a second records the months they paid
+     * as a 12 bit mask per Tenant and year, with the monthly totals for the partial check.
+     * Masks and totals are only kept for the months between a Tenant's first and last payment in the range,
+     * starting up to eleven months earlier for the rent in force.
+     * Missing months are then the occupied months that are not in the mask.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @return Arrears of the range.
+     */
+    public static Arrears generateArrears(int fromYear, int toYear) {
+        Metrics.Timer timer = Metrics.start(Metrics.ARREARS_REPORT);
+        Arrears a = calculate(fromYear, toYear);
+        timer.stop();
+        return a;
+    }
+
+    private static Arrears calculate(int fromYear, int toYear) {
+        ArrayList<TenantArrears> arrears = new ArrayList<>();
+        ArrayList<Vacancy> vacancies = new ArrayList<>();
+        ArrayList<Tenant> noPayments = new ArrayList<>();
+        List<Tenant> tenantList = Tenant.getTenants();
+        LocalDate today = LocalDate.now();
+        // Years after the current one are not due yet
+        int lastYear = Math.min(toYear, today.getYear());
+        if (tenantList == null || lastYear < fromYear) {
+            return new Arrears(fromYear, toYear, arrears, vacancies, noPayments);
+        }
+
+        // Months are numbered year * 12 + month - 1
+        int first = Math.multiplyExact(fromYear, 12);
+        int last = Math.min(Math.addExact(Math.multiplyExact(lastYear, 12), 11), monthOf(today));
+        int before = first - (WINDOW - 1);
+
+        // Tenant ids of every ledger mapped to one set of ids
+        ArrayList<Rent.Ledger> ledgers = new ArrayList<>();
+        for (ArchiveCache.Year archived : ArchiveCache.years(fromYear - 1, Integer.MAX_VALUE)) {
+            if (archived.rent() != null) { ledgers.add(archived.rent()); }
+        }
+        if (Rent.ledger() != null) { ledgers.add(Rent.ledger()); }
+        Dictionary<Tenant> ids = new Dictionary<>();
+        ArrayList<LedgerColumns.Snapshot> snapshots = new ArrayList<>(ledgers.size());
+        ArrayList<int[]> remaps = new ArrayList<>(ledgers.size());
+        for (Rent.Ledger ledger : ledgers) {
+            snapshots.add(ledger.columns().snapshot());
+            int[] remap = new int[ledger.tenants().size()];
+            for (int id = 0; id < remap.length; id++) {
+                remap[id] = ids.encode(ledger.tenants().decode(id));
+            }
+            remaps.add(remap);
+        }
+
+        // First pass: months of each Tenant's first and last payment, overall and within the range
+        int tenants = ids.size();
+        int[] firstPaid = new int[tenants];
+        int[] lastPaid = new int[tenants];
+        Paid paid = new Paid(tenants);
+        Arrays.fill(firstPaid, Integer.MAX_VALUE);
+        Arrays.fill(lastPaid, Integer.MIN_VALUE);
+        for (int p = 0; p < snapshots.size(); p++) {
+            LedgerColumns.Snapshot columns = snapshots.get(p);
+            int[] remap = remaps.get(p);
+            int[] days = columns.ints()[Rent.DAY];
+            int[] tenantIds = columns.ints()[Rent.TENANT];
+            int day = Integer.MIN_VALUE, month = 0;
+            for (int i = 0; i < columns.size(); i++) {
+                int tenantId = tenantIds[i];
+                if (tenantId >= remap.length) { continue; }
+                int id = remap[tenantId];
+                if (days[i] != day) {
+                    day = days[i];
+                    month = monthOf(LocalDate.ofEpochDay(day));
+                }
+                firstPaid[id] = Math.min(firstPaid[id], month);
+                lastPaid[id] = Math.max(lastPaid[id], month);
+                if (month >= before && month <= last) { paid.span(id, month); }
+            }
+        }
+
+        // Second pass over the rows of those months only: payment masks and monthly totals within each Tenant's span
+        paid.allocate();
+        int fromDay = DateIndex.toDay(toYearMonth(before).atDay(1), false);
+        int toDay = DateIndex.toDay(toYearMonth(last).atEndOfMonth(), true);
+        for (int p = 0; p < snapshots.size(); p++) {
+            LedgerColumns.Snapshot columns = snapshots.get(p);
+            int[] remap = remaps.get(p);
+            int[] days = columns.ints()[Rent.DAY];
+            int[] tenantIds = columns.ints()[Rent.TENANT];
+            long[] amounts = columns.cents();
+            int day = Integer.MIN_VALUE, month = 0;
+            for (int row : ledgers.get(p).dates().between(columns, fromDay, toDay)) {
+                int tenantId = tenantIds[row];
+                if (tenantId >= remap.length) { continue; }
+                if (days[row] != day) {
+                    day = days[row];
+                    month = monthOf(LocalDate.ofEpochDay(day));
+                }
+                paid.add(remap[tenantId], month, amounts[row]);
+            }
+        }
+
+        // Walk each apartment's Tenants oldest to newest
+        LinkedHashSet<Integer> apartments = new LinkedHashSet<>();
+        for (Tenant t : tenantList) {
+            apartments.add(t.getAptNum());
+        }
+        for (int apt : apartments) {
+            List<Tenant> history = Tenant.getTenantHistory(apt);
+            int previousEnd = Integer.MIN_VALUE;
+            for (int k = 0; k < history.size(); k++) {
+                Tenant t = history.get(k);
+                boolean current = k == history.size() - 1;
+                int id = ids.find(t);
+                if (id == Dictionary.NULL_ID || id >= tenants || firstPaid[id] == Integer.MAX_VALUE) {
+                    if (current) { noPayments.add(t); }
+                    continue;
+                }
+                int start = firstPaid[id];
+                int end = current ? Math.max(last, lastPaid[id]) : lastPaid[id];
+
+                if (previousEnd != Integer.MIN_VALUE && start - previousEnd > 1) {
+                    int from = Math.max(previousEnd + 1, first);
+                    int to = Math.min(start - 1, last);
+                    if (from <= to) { vacancies.add(new Vacancy(apt, toYearMonth(from), toYearMonth(to))); }
+                }
+                previousEnd = Math.max(previousEnd, end);
+
+                TenantArrears a = check(t, id, Math.max(start, first), Math.min(end, last), paid);
+                if (a != null) { arrears.add(a); }
+            }
+        }
+
+        return new Arrears(fromYear, toYear, Collections.unmodifiableList(arrears),
+                Collections.unmodifiableList(vacancies), Collections.unmodifiableList(noPayments));
+    }
+
+    /**
+     * Months paid and monthly totals of every Tenant, kept only for the months between
+     * their first and last payment in the range or the eleven months before it (their span). Masks and totals of all Tenants share one array each,
+     * a Tenant's part starts at their offset.
+     */
+    private static final class Paid {
+        private final int[] from, to;
+        private final int[] maskAt, centsAt;
+        private short[] masks;
+        private long[] cents;
+
+        private Paid(int tenants) {
+            from = new int[tenants];
+            to = new int[tenants];
+            maskAt = new int[tenants];
+            centsAt = new int[tenants];
+            Arrays.fill(from, Integer.MAX_VALUE);
+            Arrays.fill(to, Integer.MIN_VALUE);
+        }
+
+        /**
+         * Widens the span of a Tenant to take in a month, called before allocate().
+         */
+        private void span(int id, int month) {
+            from[id] = Math.min(from[id], month);
+            to[id] = Math.max(to[id], month);
+        }
+
+        /**
+         * Lays out every Tenant's span and allocates the masks and totals.
+         */
+        private void allocate() {
+            int maskSize = 0, centsSize = 0;
+            for (int id = 0; id < from.length; id++) {
+                maskAt[id] = maskSize;
+                centsAt[id] = centsSize;
+                if (from[id] > to[id]) { continue; }
+                maskSize = Math.addExact(maskSize, to[id] / 12 - from[id] / 12 + 1);
+                centsSize = Math.addExact(centsSize, to[id] - from[id] + 1);
+            }
+            masks = new short[maskSize];
+            cents = new long[centsSize];
+        }
+
+        private void add(int id, int month, long amount) {
+            masks[maskAt[id] + month / 12 - from[id] / 12] |= (short) (1 << (month % 12));
+            cents[centsAt[id] + month - from[id]] += amount;
+        }
+
+        private boolean has(int id, int month) {
+            if (month < from[id] || month > to[id]) { return false; }
+            return (masks[maskAt[id] + month / 12 - from[id] / 12] & (1 << (month % 12))) != 0;
+        }
+
+        private long cents(int id, int month) {
+            return cents[centsAt[id] + month - from[id]];
+        }
+    }
+
+    /**
+     * Compares the months a Tenant paid against the months they occupied.
+     * @param start First occupied month in the range.
+     * @param end Last occupied month in the range (inclusive).
+     * @return Arrears of the Tenant, null if they paid every month in full.
+     */
+    private static TenantArrears check(Tenant t, int id, int start, int end, Paid paid) {
+        if (start > end) { return null; }
+        ArrayList<YearMonth> missing = new ArrayList<>();
+        TreeMap<YearMonth, Double> partial = new TreeMap<>();
+
+        // The window of WINDOW months ends at the month checked, but never starts before the first payment of the tenancy
+        long[] window = new long[WINDOW];
+        int windowStart = Math.max(start - (WINDOW - 1), Math.min(paid.from[id], start));
+        long inForce = rentInForce(paid, id, windowStart, window);
+        long expected = 0;
+        for (int month = start; month <= end; month++) {
+            if (month - (WINDOW - 1) > windowStart) {
+                // The window moves on by one month, the rent in force can only change if the months in and out differ
+                int out = windowStart++;
+                if (paid.has(id, out) != paid.has(id, month) || (paid.has(id, month) && paid.cents(id, out) != paid.cents(id, month))) {
+                    inForce = rentInForce(paid, id, windowStart, window);
+                }
+            }
+            if (inForce > 0) { expected = inForce; }
+
+            if (!paid.has(id, month)) {
+                missing.add(toYearMonth(month));
+            } else if (paid.cents(id, month) < expected) {
+                partial.put(toYearMonth(month), LedgerColumns.fromCents(paid.cents(id, month)));
+            }
+        }
+
+        if (missing.isEmpty() && partial.isEmpty()) { return null; }
+        return new TenantArrears(t, LedgerColumns.fromCents(expected), Collections.unmodifiableList(missing),
+                Collections.unmodifiableSortedMap(partial));
+    }
+
+    /**
+     * Returns the rent in force over the WINDOW months from windowStart.
+     * @param window Scratch array of WINDOW totals.
+     */
+    private static long rentInForce(Paid paid, int id, int windowStart, long[] window) {
+        int size = 0;
+        for (int month = windowStart; month < windowStart + WINDOW; month++) {
+            if (paid.has(id, month)) { window[size++] = paid.cents(id, month); }
+        }
+        return mostOften(window, size);
+    }
+
+    /**
+     * Returns the positive total found most often in totals[0, size), the larger total on a tie, 0 if there is none.
+     */
+    private static long mostOften(long[] totals, int size) {
+        long expected = 0;
+        int best = 0;
+        for (int i = 0; i < size; i++) {
+            if (totals[i] <= 0) { continue; }
+            int count = 0;
+            for (int j = 0; j < size; j++) {
+                if (totals[j] == totals[i]) { count++; }
+            }
+            if (count > best || (count == best && totals[i] > expected)) {
+                best = count;
+                expected = totals[i];
+            }
+        }
+        return expected;
+    }
+
+    private static int monthOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    private static YearMonth toYearMonth(int month) {
+        return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+    }
+
+    /**
+     * Formats the arrears of a range of years.
+     * @param fromYear First year of the range.
+     * @param toYear Last year of the range (inclusive).
+     * @return String of report
+     */
+    public static String generateReport(int fromYear, int toYear) {
+        Arrears a = generateArrears(fromYear, toYear);
+        StringBuilder report = new StringBuilder(String.format(ARREARS_OUT, fromYear, toYear));
+
+        int missing = 0, partial = 0;
+        for (TenantArrears t : a.tenants()) {
+            report.append(String.format(" %s, expected %.2f per month%n", t.tenant(), t.expected()));
+            if (!t.missing().isEmpty()) {
+                report.append("   Missing: ");
+                for (int i = 0; i < t.missing().size(); i++) {
+                    report.append(i == 0 ? "" : ", ").append(t.missing().get(i));
+                }
+                report.append(System.lineSeparator());
+            }
+            t.partial().forEach((month, amount) ->
+                    report.append(String.format("   Partial: %s (paid %.2f)%n", month, amount)));
+            missing += t.missing().size();
+            partial += t.partial().size();
+        }
+
+        if (!a.vacancies().isEmpty()) {
+            report.append(String.format("%n Vacancies%n"));
+            for (Vacancy v : a.vacancies()) {
+                report.append(String.format("   Apt %d: %s - %s%n", v.aptNum(), v.from(), v.to()));
+            }
+        }
+        if (!a.noPayments().isEmpty()) {
+            report.append(String.format("%n Current tenants with no rent recorded%n"));
+            for (Tenant t : a.noPayments()) {
+                report.append(String.format("   %s%n", t));
+            }
+        }
+
+        report.append(String.format("%n %d tenants in arrears, %d missing months, %d partial payments.%n",
+                a.tenants().size(), missing, partial));
+        return report.toString();
+    }
+
+}
@@ -0,0 +1,187 @@
+package data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and writes the binary snapshot of the Rent and Expense ledgers.
+ * Used by FileHandler when binary snapshots are turned on, Tenants are always saved as JSON.
+ * Rows are copied between the file and LedgerColumns directly, no Rent or Expense objects are created.
+ *
+ * Layout (big endian):
+ *   int magic, int version
+ *   int dictionary size, then per entry: int byte length, UTF-8 bytes
+ *   int rent count, then per rent:        int epoch day, int tenant ordinal, long cents
+ *   int expense count, then per expense:  int epoch day, int category id, int payee id, long cents
+ * Tenant ordinals are positions in the Tenant list saved alongside the snapshot.
+ * Dictionary ids are the ids of the Expense Dictionary, -1 stands for a null String.
+ */
+public final class BinaryLedger {
+
+    private static final int MAGIC = 0x54455241; // "TERA"
+    private static final int VERSION = 1;
+
+    /**
+     * Rent and Expenses read from a snapshot, pass them to Rent.loadRent() and Expense.loadExpenses().
+     * Both lists are read-only views over the columns that were read.
+     */
+    public record Ledger(List<Rent> rent, List<Expense> expenses) {}
+
+    private BinaryLedger() {}
+
+    /**
+     * Writes the Rent and Expense lists to a binary snapshot.
+     * The snapshot is written to a temporary file, synced and renamed over the old snapshot.
+     * @param file Snapshot file to write.
+     * @param tenants Tenants saved alongside the snapshot, used for the tenant ordinals.
+     * @param rent Rent to save.
+     * @param expenses Expenses to save.
+     * @throws IOException If writing fails or a Rent belongs to a Tenant that is not saved.
+     */
+    public static void write(File file, List<Tenant> tenants, List<Rent> rent, List<Expense> expenses) throws IOException {
+        Rent.Ledger rentLedger = rent == null ? null : Rent.columnsOf(rent);
+        if (rent != null && rentLedger == null) {
+            throw new IOException("Rent belongs to a Tenant that is not in memory or its year is out of range.");
+        }
+        Expense.Ledger expenseLedger = expenses == null ? null : Expense.columnsOf(expenses);
+        if (expenses != null && expenseLedger == null) {
+            throw new IOException("The year of an Expense is out of range.");
+        }
+
+        // Tenant Ordinals, by Tenant id of the Rent columns
+        int[] ordinals = new int[0];
+        if (rentLedger != null) {
+            HashMap<UUID, Integer> positions = new HashMap<>();
+            if (tenants != null) {
+                for (int i = 0; i < tenants.size(); i++) {
+                    positions.put(tenants.get(i).getId(), i);
+                }
+            }
+            ordinals = new int[rentLedger.tenants().size()];
+            for (int id = 0; id < ordinals.length; id++) {
+                UUID tenantId = rentLedger.tenants().decode(id).getId();
+                Integer position = positions.get(tenantId);
+                if (position == null) {
+                    throw new IOException("Rent belongs to a Tenant that is not being saved: " + tenantId);
+                }
+                ordinals[id] = position;
+            }
+        }
+
+        // Category / Payee Dictionary, every id used by the columns is below its size
+        List<String> dictionary = expenseLedger == null ? List.of() : expenseLedger.strings().values();
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(dictionary.size());
+            for (String s : dictionary) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            LedgerColumns.Snapshot columns = rentLedger == null ? null : rentLedger.columns().snapshot();
+            out.writeInt(columns == null ? 0 : columns.size());
+            for (int i = 0; columns != null && i < columns.size(); i++) {
+                out.writeInt(columns.get(Rent.DAY, i));
+                out.writeInt(ordinals[columns.get(Rent.TENANT, i)]);
+                out.writeLong(columns.cents(i));
+            }
+
+            columns = expenseLedger == null ? null : expenseLedger.columns().snapshot();
+            out.writeInt(columns == null ? 0 : columns.size());
+            for (int i = 0; columns != null && i < columns.size(); i++) {
+                out.writeInt(columns.get(Expense.DAY, i));
+                out.writeInt(columns.get(Expense.CATEGORY, i));
+                out.writeInt(columns.get(Expense.PAYEE, i));
+                out.writeLong(columns.cents(i));
+            }
+
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a binary snapshot through a memory map, straight into new columns.
+     * Categories and payees are read into a new Dictionary, loadExpenses() makes it the shared one.
+     * @param file Snapshot file to read.
+     * @param tenants Tenants loaded from the save file written with the snapshot.
+     * @return Ledger containing the Rent and Expense lists.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static Ledger read(File file, List<Tenant> tenants) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) { throw new IOException(file.getName() + " is not a ledger snapshot."); }
+            int version = buffer.getInt();
+            if (version != VERSION) { throw new IOException(file.getName() + " has unsupported version " + version + "."); }
+
+            // Saved ids are kept, unless an older snapshot holds spellings that only differ in case
+            Dictionary<String> strings = Dictionary.ignoringCase();
+            int[] stringIds = new int[buffer.getInt()];
+            for (int i = 0; i < stringIds.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                stringIds[i] = strings.encode(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            int rentCount = buffer.getInt();
+            Dictionary<Tenant> owners = new Dictionary<>();
+            int[] tenantIds = new int[tenants == null ? 0 : tenants.size()];
+            Arrays.fill(tenantIds, Dictionary.NULL_ID);
+            int[][] rentInts = new int[2][rentCount];
+            long[] rentCents = new long[rentCount];
+            for (int i = 0; i < rentCount; i++) {
+                rentInts[Rent.DAY][i] = buffer.getInt();
+                int ordinal = buffer.getInt();
+                if (ordinal < 0 || ordinal >= tenantIds.length) {
+                    throw new IOException(file.getName() + " refers to a Tenant that does not exist.");
+                }
+                if (tenantIds[ordinal] == Dictionary.NULL_ID) { tenantIds[ordinal] = owners.encode(tenants.get(ordinal)); }
+                rentInts[Rent.TENANT][i] = tenantIds[ordinal];
+                rentCents[i] = buffer.getLong();
+            }
+
+            int expenseCount = buffer.getInt();
+            int[][] expenseInts = new int[3][expenseCount];
+            long[] expenseCents = new long[expenseCount];
+            for (int i = 0; i < expenseCount; i++) {
+                expenseInts[Expense.DAY][i] = buffer.getInt();
+                expenseInts[Expense.CATEGORY][i] = decode(buffer.getInt(), stringIds);
+                expenseInts[Expense.PAYEE][i] = decode(buffer.getInt(), stringIds);
+                expenseCents[i] = buffer.getLong();
+            }
+
+            Rent.Ledger rent = new Rent.Ledger(new LedgerColumns(rentInts, rentCents, rentCount), owners, new DateIndex(Rent.DAY));
+            Expense.Ledger expenses = new Expense.Ledger(new LedgerColumns(expenseInts, expenseCents, expenseCount), strings, new DateIndex(Expense.DAY));
+            return new Ledger(Rent.viewOf(rent), Expense.viewOf(expenses));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException(file.getName() + " is truncated or corrupt.", e);
+        }
+    }
+
+    private static int decode(int id, int[] stringIds) {
+        return id == Dictionary.NULL_ID ? Dictionary.NULL_ID : stringIds[id];
+    }
+
+}
@@ -0,0 +1,205 @@
+package data;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Index of the rows of a LedgerColumns table ordered by date, for range queries.
+ * Rows of the same day stay in the order they were added.
+ *
+ * The index is brought up to date when it is queried: rows added since the last query are sorted
+ * and appended, or merged in if some of them are dated before the newest row already indexed.
+ * A query is a binary search for the first day plus a copy of the k rows in the range, O(log n + k).
+ */
+final class DateIndex {
+
+    // Years whose every day fits in the int day column, rows dated outside are rejected when added or loaded
+    static final int MIN_YEAR = LocalDate.ofEpochDay(Integer.MIN_VALUE).getYear() + 1;
+    static final int MAX_YEAR = LocalDate.ofEpochDay(Integer.MAX_VALUE).getYear() - 1;
+
+    /**
+     * Days and rows sorted by day, and the number of table rows covered.
+     * Arrays may be longer than size, slots below size are never written again.
+     */
+    private record Sorted(int[] days, int[] rows, int size) {}
+
+    private final int dayColumn;
+    private volatile Sorted sorted = new Sorted(new int[16], new int[16], 0);
+
+    /**
+     * Creates an empty index.
+     * @param dayColumn Int column of the table holding the epoch day of each row.
+     */
+    DateIndex(int dayColumn) {
+        this.dayColumn = dayColumn;
+    }
+
+    /**
+     * Returns the rows of a snapshot dated between two days, inclusive.
+     * @param columns Snapshot of the indexed table.
+     * @param from First epoch day.
+     * @param to Last epoch day.
+     * @return Row numbers in date order.
+     */
+    int[] between(LedgerColumns.Snapshot columns, int from, int to) {
+        Sorted s = sorted;
+        if (s.size() < columns.size()) {
+            s = update(columns);
+        }
+        if (from > to) { return new int[0]; }
+
+        int start = lowerBound(s, from);
+        int end = to == Integer.MAX_VALUE ? s.size() : lowerBound(s, to + 1);
+
+        // The index may cover rows added after the snapshot was taken
+        int[] rows = Arrays.copyOfRange(s.rows(), start, end);
+        if (s.size() == columns.size()) { return rows; }
+        int count = 0;
+        for (int row : rows) {
+            if (row < columns.size()) { rows[count++] = row; }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Counts the rows of a snapshot in each month, by binary searching the month boundaries of the sorted days.
+     * No rows are copied or read unless the index covers rows added after the snapshot was taken.
+     * @param columns Snapshot of the indexed table.
+     * @return Row count of each month that has rows, in month order.
+     */
+    TreeMap<YearMonth, Integer> countByMonth(LedgerColumns.Snapshot columns) {
+        Sorted s = sorted;
+        if (s.size() < columns.size()) {
+            s = update(columns);
+        }
+        TreeMap<YearMonth, Integer> counts = new TreeMap<>();
+        for (int start = 0, end; start < s.size(); start = end) {
+            YearMonth month = YearMonth.from(LocalDate.ofEpochDay(s.days()[start]));
+            end = lowerBound(s, toDay(month.plusMonths(1).atDay(1), true));
+            int count = end - start;
+            if (s.size() != columns.size()) {
+                count = 0;
+                for (int i = start; i < end; i++) {
+                    if (s.rows()[i] < columns.size()) { count++; }
+                }
+            }
+            if (count > 0) { counts.put(month, count); }
+        }
+        return counts;
+    }
+
+    /**
+     * Adds the rows of a snapshot that are not indexed yet.
+     * @param columns Snapshot of the indexed table.
+     * @return Index covering at least every row of the snapshot.
+     */
+    private synchronized Sorted update(LedgerColumns.Snapshot columns) {
+        Sorted s = sorted;
+        if (s.size() >= columns.size()) { return s; }
+
+        // Sort the new rows by (day, row)
+        int[] days = columns.ints()[dayColumn];
+        long[] added = new long[columns.size() - s.size()];
+        for (int i = 0; i < added.length; i++) {
+            int row = s.size() + i;
+            added[i] = ((long) days[row] << 32) | row;
+        }
+        Arrays.sort(added);
+
+        int size = s.size() + added.length;
+        boolean inOrder = s.size() == 0 || (int) (added[0] >> 32) >= s.days()[s.size() - 1];
+        int[] newDays, newRows;
+        int i = 0, a = 0, out = 0;
+        if (inOrder && size <= s.days().length) {
+            // Append in place, readers never look past their own size
+            newDays = s.days();
+            newRows = s.rows();
+            out = s.size();
+        } else {
+            int capacity = size <= s.days().length ? s.days().length
+                    : Math.max(size, s.days().length + (s.days().length >> 1));
+            newDays = new int[capacity];
+            newRows = new int[capacity];
+            if (inOrder) {
+                System.arraycopy(s.days(), 0, newDays, 0, s.size());
+                System.arraycopy(s.rows(), 0, newRows, 0, s.size());
+                out = s.size();
+            } else {
+                // Merge, rows already indexed come first on the same day as they were added earlier
+                while (i < s.size() && a < added.length) {
+                    if (s.days()[i] <= (int) (added[a] >> 32)) {
+                        newDays[out] = s.days()[i];
+                        newRows[out++] = s.rows()[i++];
+                    } else {
+                        newDays[out] = (int) (added[a] >> 32);
+                        newRows[out++] = (int) added[a++];
+                    }
+                }
+                while (i < s.size()) {
+                    newDays[out] = s.days()[i];
+                    newRows[out++] = s.rows()[i++];
+                }
+            }
+        }
+        while (a < added.length) {
+            newDays[out] = (int) (added[a] >> 32);
+            newRows[out++] = (int) added[a++];
+        }
+
+        s = new Sorted(newDays, newRows, size);
+        sorted = s;
+        return s;
+    }
+
+    /**
+     * Estimates the heap used by the index, from its capacity.
+     * @return Estimated bytes.
+     */
+    long heapBytes() {
+        return (long) sorted.days().length * Integer.BYTES * 2;
+    }
+
+    /**
+     * Returns the position of the first indexed day that is not before the given day.
+     */
+    private static int lowerBound(Sorted s, int day) {
+        int low = 0, high = s.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (s.days()[mid] < day) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Converts a date to an epoch day that fits in the day column.
+     * @param date Date to convert, null for the earliest (or latest) day.
+     * @param latest True if a null date means the latest day.
+     * @return Epoch day, clamped to the range of an int.
+     */
+    static int toDay(LocalDate date, boolean latest) {
+        if (date == null) { return latest ? Integer.MAX_VALUE : Integer.MIN_VALUE; }
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+    /**
+     * Converts the date of a row to the epoch day stored in the day column.
+     * @param date Date of the row, its year between MIN_YEAR and MAX_YEAR.
+     * @return Epoch day.
+     * @throws ArithmeticException If the date does not fit in the day column.
+     */
+    static int toDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    static boolean isInRange(int year) {
+        return year >= MIN_YEAR && year <= MAX_YEAR;
+    }
+
+}
@@ -0,0 +1,108 @@
+package data;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Assigns a small int id to every distinct value, so columns can store ids instead of references.
+ * Ids are handed out in order from 0 and never change, a value keeps its id for the life of the Dictionary.
+ * Values with the same key share an id, the first value added for a key is the one returned by decode().
+ * Lookups in both directions are O(1) and safe while other threads add values.
+ * @param <T> Type of the values, must implement equals / hashCode.
+ */
+final class Dictionary<T> {
+
+    /**
+     * Id used for a null value.
+     */
+    static final int NULL_ID = -1;
+
+    // Map entry, key, boxed id and log slot of one value, not counting the value itself
+    private static final int ENTRY_BYTES = 64;
+
+    private final ConcurrentHashMap<Object, Integer> ids = new ConcurrentHashMap<>();
+    private final AppendLog<T> values = new AppendLog<>();
+    private final Function<T, ?> keyOf;
+
+    /**
+     * Creates a Dictionary where values are only the same if they are equal.
+     */
+    Dictionary() {
+        this(Function.identity());
+    }
+
+    /**
+     * Creates a Dictionary where values are the same if their keys are equal.
+     * @param keyOf Returns the key of a value.
+     */
+    Dictionary(Function<T, ?> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * Creates a Dictionary of Strings that ignores case, "Utilities" and "UTILITIES" share an id.
+     * @return Empty Dictionary.
+     */
+    static Dictionary<String> ignoringCase() {
+        return new Dictionary<>(s -> s.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the id of a value, adding the value if it is new.
+     * @param value Value to encode, may be null.
+     * @return Id of the value, NULL_ID for null.
+     */
+    synchronized int encode(T value) {
+        if (value == null) { return NULL_ID; }
+        Object key = keyOf.apply(value);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = values.size();
+            values.append(value);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the value of an id.
+     * @param id Id returned by encode().
+     * @return Value, null for NULL_ID.
+     */
+    T decode(int id) {
+        return id == NULL_ID ? null : values.get(id);
+    }
+
+    /**
+     * Returns the id of a value without adding it.
+     * @param value Value to look up.
+     * @return Id of the value, NULL_ID if it is null or not in the Dictionary.
+     */
+    int find(T value) {
+        if (value == null) { return NULL_ID; }
+        return ids.getOrDefault(keyOf.apply(value), NULL_ID);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Estimates the heap used by the Dictionary, not counting the values.
+     * @return Estimated bytes.
+     */
+    long heapBytes() {
+        return (long) values.size() * ENTRY_BYTES;
+    }
+
+    /**
+     * Returns every value in id order, the value at index i has id i.
+     * @return Immutable snapshot of the values.
+     */
+    List<T> values() {
+        return values.snapshot();
+    }
+
+}
@@ -1,33 +1,56 @@
 package data;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import handlers.FileHandler;
 import handlers.MenuHandler;
+import handlers.Metrics;
 
 import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+@JsonSerialize(using = JsonCodecs.ExpenseSerializer.class)
+@JsonDeserialize(using = JsonCodecs.ExpenseDeserializer.class)
 public class Expense {
 
-    private static ArrayList<Expense> expenses;
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
-    @JsonDeserialize(using = LocalDateDeserializer.class)
-    @JsonSerialize(using = LocalDateSerializer.class)
+    // Expenses are held in columns, Expense objects are created on access
+    static final int DAY = 0, CATEGORY = 1, PAYEE = 2;
+    private static final int UNENCODED = -2;
+    private static volatile Dictionary<String> strings = Dictionary.ignoringCase();
+    // Set by loadDictionary() so the loadExpenses() that follows keeps its ids
+    private static boolean dictionaryLoaded = false;
+    private static volatile Ledger expenses;
+    private static volatile ConcurrentHashMap<Integer, Long> totalsByYear = new ConcurrentHashMap<>();
+    private static final Metrics.Counter rangeQueries = Metrics.counter(Metrics.RANGE_QUERY);
+    // String header and array header of a category or payee
+    private static final int STRING_BYTES = 40;
     private LocalDate date;
     private String category;
     private String payee;
     private double payment;
+    private int categoryId = UNENCODED;
+    private int payeeId = UNENCODED;
+    private Dictionary<String> dictionary;
+
+    /**
+     * Expense columns (epoch day, category id, payee id), the Strings the ids stand for and the date index of the rows.
+     * Categories and payees share one Dictionary that ignores case, so an id means the same String in every Ledger
+     * built from it. A load that brings its own Dictionary (BinaryLedger) replaces the shared one.
+     */
+    record Ledger(LedgerColumns columns, Dictionary<String> strings, DateIndex dates) {}
 
     /**
      * Default Constructor
-     * Used by Jackson for JSON Mapper Reading.
+     * Save files are read through JsonCodecs, not this constructor.
      * Using this on its own accomplishes nothing.
      */
     public Expense() {}
@@ -44,8 +67,9 @@ public class Expense {
     }
 
     /**
-     * Creates a new Expense Object and adds it to the ArrayList.
+     * Creates a new Expense Object and adds it to the list.
      * This is the only way to add a new Expense. Constructor is private.
+     * Safe to call while other threads read the Expenses.
      * @param year Year of expense as int.
      * @param month Month of expense as int.
      * @param day Day of Month of expense as int.
@@ -54,9 +78,9 @@ public class Expense {
      * @param payment Amount paid.
      * @return Expense object created, null if unsuccessful.
      */
-    public static Expense addExpense(int year, int month, int day, String category, String payee, double payment) {
+    public static synchronized Expense addExpense(int year, int month, int day, String category, String payee, double payment) {
         if (expenses == null) {
-            expenses = new ArrayList<>();
+            expenses = new Ledger(new LedgerColumns(3, 0), strings, new DateIndex(DAY));
         }
         LocalDate d;
         try {
@@ -65,43 +89,330 @@ public class Expense {
             MenuHandler.systemMessage("Attempted to create Expense but Date is invalid.");
             return null;
         }
-        Expense e = new Expense(d, category, payee, payment);
-        expenses.add(e);
+        if (!DateIndex.isInRange(year)) {
+            MenuHandler.systemMessage("Attempted to create Expense but the year is out of range.");
+            return null;
+        }
+        long cents = LedgerColumns.toCents(payment);
+        int categoryId = expenses.strings().encode(category);
+        int payeeId = expenses.strings().encode(payee);
+        Expense e = fromColumns(d, categoryId, payeeId, cents, expenses.strings());
+        totalsByYear.merge(year, cents, Long::sum);
+        expenses.columns().append(cents, DateIndex.toDay(d), categoryId, payeeId);
         return e;
     }
 
+    /**
+     * Adds many Expense Objects created with fromRecord() in one call.
+     * Intended for bulk imports, skips any Expense whose year is out of range.
+     * @param batch List of Expenses to add.
+     * @return Number of Expense objects added.
+     */
+    public static synchronized int addExpenseBatch(List<Expense> batch) {
+        if (expenses == null) {
+            expenses = new Ledger(new LedgerColumns(3, batch.size()), strings, new DateIndex(DAY));
+        }
+        ArrayList<Expense> valid = new ArrayList<>(batch.size());
+        for (Expense e : batch) {
+            if (DateIndex.isInRange(e.date.getYear())) { valid.add(e); }
+        }
+        int[][] ints = new int[3][valid.size()];
+        long[] cents = new long[valid.size()];
+        encode(valid, ints, cents, expenses.strings());
+        for (int i = 0; i < valid.size(); i++) {
+            totalsByYear.merge(valid.get(i).date.getYear(), cents[i], Long::sum);
+        }
+        expenses.columns().appendAll(ints, cents, valid.size());
+        return valid.size();
+    }
+
+    /**
+     * Creates an Expense Object from a saved record without adding it to memory.
+     * Used by JsonCodecs, pass the results to loadExpenses().
+     * @param date Date of expense.
+     * @param category Category of Expense
+     * @param payee Recipient of the payment.
+     * @param payment Amount paid.
+     * @return Expense object created.
+     */
+    public static Expense fromRecord(LocalDate date, String category, String payee, double payment) {
+        return new Expense(date, category, payee, payment);
+    }
+
     /**
      * Loads Expenses from a File into Memory
      * Can only be called from FileHandler.class
-     * @param data ArrayList loaded from a File.
+     * Any other list is encoded into the Dictionary just loaded by loadDictionary(), or into a new one,
+     * so categories and payees of a previous load are not kept.
+     * A list read by BinaryLedger already holds its columns and Dictionary, they are used as they are.
+     * @param data List loaded from a File.
      * @return True if successful, False otherwise.
      */
-    public static boolean loadExpenses(ArrayList<Expense> data) {
+    public static synchronized boolean loadExpenses(List<Expense> data) {
         StackTraceElement[] stack = Thread.currentThread().getStackTrace();
         if ((stack.length >= 3) && !(stack[2].getClassName().equals(FileHandler.class.getName()))) {
             MenuHandler.systemMessage("An unknown class tried to edit the Rent list.");
             return false;
         }
-        if (data == null || data.isEmpty()) {
+        if (!dictionaryLoaded) { strings = Dictionary.ignoringCase(); }
+        dictionaryLoaded = false;
+        if (data == null) {
             MenuHandler.systemMessage("No data found in expense.json... Ignoring...");
             return true;
         }
-        Expense.expenses = data;
+        Ledger ledger = data instanceof View view && view.rows.selectsAll() ? view.ledgers.get(0) : ledgerOf(data);
+        if (ledger == null) {
+            MenuHandler.systemMessage("Invalid data found in expense.json.");
+            return false;
+        }
+        Expense.strings = ledger.strings();
+        Expense.totalsByYear = totalsOf(ledger.columns().snapshot());
+        Expense.expenses = ledger;
+        return true;
+    }
+
+    /**
+     * Creates the columns of a list of Expenses, used for loads and for archived years.
+     * @param data Expenses to hold in the columns.
+     * @return Ledger, null if an Expense has no date or its year is out of range.
+     */
+    static Ledger ledgerOf(List<Expense> data) {
+        for (Expense e : data) {
+            if (e.date == null || !DateIndex.isInRange(e.date.getYear())) { return null; }
+        }
+        int[][] ints = new int[3][data.size()];
+        long[] cents = new long[data.size()];
+        encode(data, ints, cents, strings);
+        return new Ledger(new LedgerColumns(ints, cents, data.size()), strings, new DateIndex(DAY));
+    }
+
+    /**
+     * Returns the columns of a list for BinaryLedger to write.
+     * A list from getExpenses() is read from its Snapshot without creating any Expense, any other list is encoded.
+     * The columns returned must not be appended to.
+     * @param data Expenses to write.
+     * @return Ledger holding exactly the rows of the list, null if the year of an Expense is out of range.
+     */
+    static Ledger columnsOf(List<Expense> data) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            LedgerColumns.Snapshot s = view.columns.get(0);
+            Ledger ledger = view.ledgers.get(0);
+            return new Ledger(new LedgerColumns(s.ints(), s.cents(), s.size()), ledger.strings(), ledger.dates());
+        }
+        return ledgerOf(data);
+    }
+
+    /**
+     * Returns every row of a Ledger as a List, used by BinaryLedger to hand its columns to loadExpenses().
+     * @param ledger Ledger to read.
+     * @return Unmodifiable List of Expenses
+     */
+    static List<Expense> viewOf(Ledger ledger) {
+        LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+        return new View(List.of(ledger), List.of(columns), RowSelection.all(columns.size()));
+    }
+
+    /**
+     * Loads the saved category / payee dictionary into Memory
+     * Can only be called from FileHandler.class, before loadExpenses() so saved spellings and ids are kept.
+     * Replaces the Dictionary, Strings of a previous load are dropped.
+     * @param data Strings in id order, loaded from a File.
+     * @return True if successful, False otherwise.
+     */
+    public static synchronized boolean loadDictionary(List<String> data) {
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        if ((stack.length >= 3) && !(stack[2].getClassName().equals(FileHandler.class.getName()))) {
+            MenuHandler.systemMessage("An unknown class tried to edit the Expense dictionary.");
+            return false;
+        }
+        Dictionary<String> loaded = Dictionary.ignoringCase();
+        if (data != null) {
+            for (String s : data) {
+                loaded.encode(s);
+            }
+        }
+        strings = loaded;
+        dictionaryLoaded = true;
         return true;
     }
 
+    /**
+     * Retrieves every category and payee used by the Expenses, in id order.
+     * Used by FileHandler to save the dictionary.
+     * @return Unmodifiable List of Strings
+     */
+    public static List<String> getDictionary() {
+        Ledger ledger = expenses;
+        return (ledger == null ? strings : ledger.strings()).values();
+    }
+
+    /**
+     * Fills in the columns of a list of Expenses.
+     * @param data Expenses to encode.
+     * @param ints Int columns to fill, at least data.size() rows.
+     * @param cents Amount column to fill, at least data.size() rows.
+     * @param strings Dictionary for the categories and payees.
+     */
+    private static void encode(List<Expense> data, int[][] ints, long[] cents, Dictionary<String> strings) {
+        for (int i = 0; i < data.size(); i++) {
+            Expense e = data.get(i);
+            ints[DAY][i] = DateIndex.toDay(e.date);
+            ints[CATEGORY][i] = strings.encode(e.category);
+            ints[PAYEE][i] = strings.encode(e.payee);
+            cents[i] = LedgerColumns.toCents(e.payment);
+        }
+    }
+
     /**
      * Retrieves the list of expenses saved to memory.
-     * List is unmodifiable to protect the list of Expenses.
+     * List is an immutable snapshot, Expenses added afterwards are not in it.
+     * Expense objects are created from the columns as they are read, keep them only as long as needed.
+     * Archived years are not in the list, use between() to read them.
      * @return Unmodifiable List of Expenses
      */
     public static List<Expense> getExpenses() {
-        if (expenses != null) {
-            return Collections.unmodifiableList(expenses);
+        Ledger ledger = expenses;
+        if (ledger != null) {
+            LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+            return new View(List.of(ledger), List.of(columns), RowSelection.all(columns.size()));
         }
         return null;
     }
 
+    /**
+     * Retrieves the expenses made between two dates, oldest first.
+     * Uses the date index of the Expenses, only the expenses in the range are read.
+     * Archived years in the range are read from the Archive and included.
+     * @param from First date (inclusive), null for no lower limit.
+     * @param to Last date (inclusive), null for no upper limit.
+     * @return Unmodifiable List of Expenses, null if there are no Expenses.
+     */
+    public static List<Expense> between(LocalDate from, LocalDate to) {
+        rangeQueries.increment();
+        ArrayList<Ledger> ledgers = new ArrayList<>();
+        for (ArchiveCache.Year archived : ArchiveCache.years(from == null ? Integer.MIN_VALUE : from.getYear(),
+                to == null ? Integer.MAX_VALUE : to.getYear())) {
+            if (archived.expenses() != null) { ledgers.add(archived.expenses()); }
+        }
+        Ledger ledger = expenses;
+        if (ledger != null) { ledgers.add(ledger); }
+        if (ledgers.isEmpty()) { return null; }
+
+        int fromDay = DateIndex.toDay(from, false), toDay = DateIndex.toDay(to, true);
+        ArrayList<LedgerColumns.Snapshot> snapshots = new ArrayList<>(ledgers.size());
+        ArrayList<int[]> rows = new ArrayList<>(ledgers.size());
+        for (Ledger l : ledgers) {
+            LedgerColumns.Snapshot columns = l.columns().snapshot();
+            snapshots.add(columns);
+            rows.add(l.dates().between(columns, fromDay, toDay));
+        }
+        return new View(ledgers, snapshots, RowSelection.merge(snapshots, rows, DAY));
+    }
+
+    /**
+     * Counts the Expenses of a list per month.
+     * A list from getExpenses() is counted through its date index without creating any Expense, any other list is read.
+     * @param data Expenses to count.
+     * @return Number of expenses in each month that has any, in month order.
+     */
+    public static SortedMap<YearMonth, Integer> countByMonth(List<Expense> data) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            return view.ledgers.get(0).dates().countByMonth(view.columns.get(0));
+        }
+        TreeMap<YearMonth, Integer> counts = new TreeMap<>();
+        for (Expense e : data) {
+            counts.merge(YearMonth.from(e.date), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Retrieves the Expenses of a list made in one month.
+     * A list from getExpenses() is searched through its date index, any other list is read.
+     * @param data Expenses to search.
+     * @param month Month of the expenses.
+     * @return Unmodifiable List of the expenses in the month, oldest first for a list from getExpenses().
+     */
+    public static List<Expense> inMonth(List<Expense> data, YearMonth month) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            Ledger ledger = view.ledgers.get(0);
+            LedgerColumns.Snapshot columns = view.columns.get(0);
+            int[] rows = ledger.dates().between(columns, DateIndex.toDay(month.atDay(1), false), DateIndex.toDay(month.atEndOfMonth(), true));
+            return new View(List.of(ledger), List.of(columns), RowSelection.merge(List.of(columns), List.of(rows), DAY));
+        }
+        ArrayList<Expense> inMonth = new ArrayList<>();
+        for (Expense e : data) {
+            if (YearMonth.from(e.date).equals(month)) { inMonth.add(e); }
+        }
+        return Collections.unmodifiableList(inMonth);
+    }
+
+    /**
+     * Returns the Expense columns for aggregations within the data package.
+     * @return Ledger, null if there are no Expenses.
+     */
+    static Ledger ledger() {
+        return expenses;
+    }
+
+    /**
+     * Estimates the heap used by the Expenses in memory: columns, date index and the category / payee dictionary.
+     * Archived years are counted by ArchiveCache.getHeapEstimate(), they share the dictionary.
+     * @return Estimated bytes, 0 if there are no Expenses.
+     */
+    public static long getHeapEstimate() {
+        Ledger ledger = expenses;
+        if (ledger == null) { return 0; }
+        long bytes = heapEstimate(ledger) + ledger.strings().heapBytes();
+        for (String s : ledger.strings().values()) {
+            bytes += STRING_BYTES + (s == null ? 0 : s.length());
+        }
+        return bytes;
+    }
+
+    static long heapEstimate(Ledger ledger) {
+        return ledger.columns().heapBytes() + ledger.dates().heapBytes();
+    }
+
+    /**
+     * Returns the sum of all expenses made in a year.
+     * Totals are kept up to date on every add / load, no list scan is performed.
+     * The total of an archived year is added when the year is read from the Archive.
+     * @param year Year to total.
+     * @return Total paid in the year, 0 if there are none.
+     */
+    public static double getTotalByYear(int year) {
+        long cents = totalsByYear.getOrDefault(year, 0L);
+        ArchiveCache.Year archived = ArchiveCache.isArchived(year) ? ArchiveCache.year(year) : null;
+        if (archived != null) { cents += archived.expenseCents(); }
+        return LedgerColumns.fromCents(cents);
+    }
+
+    /**
+     * Calculates the per-year totals, in cents, of the columns.
+     * Called once whenever the Expenses are replaced by a load.
+     */
+    private static ConcurrentHashMap<Integer, Long> totalsOf(LedgerColumns.Snapshot columns) {
+        ConcurrentHashMap<Integer, Long> totals = new ConcurrentHashMap<>();
+        int[] days = columns.ints()[DAY];
+        long[] cents = columns.cents();
+        for (int i = 0; i < columns.size(); i++) {
+            totals.merge(LocalDate.ofEpochDay(days[i]).getYear(), cents[i], Long::sum);
+        }
+        return totals;
+    }
+
+    /**
+     * Creates an Expense from the values of one row, with the canonical category and payee.
+     */
+    private static Expense fromColumns(LocalDate date, int categoryId, int payeeId, long cents, Dictionary<String> strings) {
+        Expense e = new Expense(date, strings.decode(categoryId), strings.decode(payeeId), LedgerColumns.fromCents(cents));
+        e.categoryId = categoryId;
+        e.payeeId = payeeId;
+        e.dictionary = strings;
+        return e;
+    }
+
     public LocalDate getDate() { return date; }
     public String getCategory() { return category; }
     public String getPayee() { return payee; }
@@ -109,7 +420,8 @@ public class Expense {
 
     /**
      * Returns if the expense is the same expense.
-     * Performs the checks on all attributes.
+     * Performs the checks on all attributes, categories and payees ignore case.
+     * Expenses read from the same Dictionary compare category and payee ids instead of Strings.
      * @param o Object
      * @return True if (this == o), false otherwise.
      */
@@ -117,6 +429,12 @@ public class Expense {
     public boolean equals(Object o) {
         if (o == this) { return true; }
         if (!(o instanceof Expense e)) { return false; }
+        if (this.dictionary != null && this.dictionary == e.dictionary) {
+            return this.getDate().equals(e.getDate()) &&
+                    this.categoryId == e.categoryId &&
+                    this.payeeId == e.payeeId &&
+                    this.getPayment() == e.getPayment();
+        }
         return this.getDate().equals(e.getDate()) &&
                 this.getCategory().equalsIgnoreCase(e.getCategory()) &&
                 this.getPayee().equalsIgnoreCase(e.getPayee()) &&
@@ -127,4 +445,38 @@ public class Expense {
     public String toString() {
         return this.payee + " (" + this.category + ") - " + this.payment + " (" + this.date.getMonth() + " " + this.date.getDayOfMonth() + ", " + this.date.getYear() + ")";
     }
+
+    /**
+     * Read-only List over selected rows of Snapshots of one or more Expense ledgers.
+     * Each get() creates an Expense from its row, categories and payees are shared from the Dictionary.
+     */
+    private static final class View extends AbstractList<Expense> implements RandomAccess {
+        private final List<Ledger> ledgers;
+        private final List<LedgerColumns.Snapshot> columns;
+        private final RowSelection rows;
+
+        /**
+         * @param ledgers Ledgers the rows are from, for their date indexes.
+         * @param columns Snapshot of each Ledger.
+         * @param rows Rows in the List, parts are positions in ledgers.
+         */
+        private View(List<Ledger> ledgers, List<LedgerColumns.Snapshot> columns, RowSelection rows) {
+            this.ledgers = ledgers;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Expense get(int index) {
+            LedgerColumns.Snapshot c = columns.get(rows.part(index));
+            int row = rows.row(index);
+            LocalDate date = LocalDate.ofEpochDay(c.get(DAY, row));
+            return fromColumns(date, c.get(CATEGORY, row), c.get(PAYEE, row), c.cents(row), ledgers.get(rows.part(index)).strings());
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
 }
@@ -0,0 +1,303 @@
+package data;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Hand-written Jackson serializers and deserializers for Tenant, Rent and Expense.
+ * They write the same JSON the annotated fields used to, so old and new save files read the same:
+ *   Tenant  {"id":"uuid","name":"..","aptNum":1}
+ *   Rent    {"tenantId":"uuid","date":"MM/dd/yyyy","payment":975.5}
+ *   Expense {"date":"MM/dd/yyyy","category":"..","payee":"..","payment":310.1}
+ * Field names are pre-encoded and dates between the years 1 and 9999 are formatted and parsed by hand,
+ * anything else goes through the same MM/dd/yyyy DateTimeFormatter as before.
+ * Registered on the classes with @JsonSerialize / @JsonDeserialize, so every ObjectMapper picks them up.
+ */
+final class JsonCodecs {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString APT_NUM = new SerializedString("aptNum");
+    private static final SerializableString TENANT_ID = new SerializedString("tenantId");
+    private static final SerializableString DATE_FIELD = new SerializedString("date");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString PAYEE = new SerializedString("payee");
+    private static final SerializableString PAYMENT = new SerializedString("payment");
+
+    private JsonCodecs() {}
+
+    static final class TenantSerializer extends StdSerializer<Tenant> {
+        private static final long serialVersionUID = 1L;
+
+        TenantSerializer() { super(Tenant.class); }
+
+        @Override
+        public void serialize(Tenant t, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(t);
+            gen.writeFieldName(ID);
+            writeUuid(gen, t.getId());
+            gen.writeFieldName(NAME);
+            gen.writeString(t.getName());
+            gen.writeFieldName(APT_NUM);
+            gen.writeNumber(t.getAptNum());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class TenantDeserializer extends StdDeserializer<Tenant> {
+        private static final long serialVersionUID = 1L;
+
+        TenantDeserializer() { super(Tenant.class); }
+
+        @Override
+        public Tenant deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            UUID id = null;
+            String name = null;
+            int aptNum = 0;
+            for (String field = firstField(p, ctxt, handledType()); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "id" -> id = readUuid(p, ctxt, Tenant.class);
+                    case "name" -> name = text(p, ctxt, Tenant.class);
+                    case "aptNum" -> aptNum = (int) number(p, ctxt, Tenant.class);
+                    default -> skipUnknown(p, ctxt, Tenant.class, field);
+                }
+            }
+            return Tenant.fromRecord(id, name, aptNum);
+        }
+    }
+
+    static final class RentSerializer extends StdSerializer<Rent> {
+        private static final long serialVersionUID = 1L;
+
+        RentSerializer() { super(Rent.class); }
+
+        @Override
+        public void serialize(Rent r, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(r);
+            gen.writeFieldName(TENANT_ID);
+            writeUuid(gen, r.getTenantId());
+            gen.writeFieldName(DATE_FIELD);
+            writeDate(gen, r.getDate());
+            gen.writeFieldName(PAYMENT);
+            gen.writeNumber(r.getPayment());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class RentDeserializer extends StdDeserializer<Rent> {
+        private static final long serialVersionUID = 1L;
+
+        RentDeserializer() { super(Rent.class); }
+
+        @Override
+        public Rent deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            UUID tenantId = null;
+            LocalDate date = null;
+            double payment = 0;
+            for (String field = firstField(p, ctxt, handledType()); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "tenantId" -> tenantId = readUuid(p, ctxt, Rent.class);
+                    case "date" -> date = readDate(p, ctxt, Rent.class);
+                    case "payment" -> payment = number(p, ctxt, Rent.class);
+                    default -> skipUnknown(p, ctxt, Rent.class, field);
+                }
+            }
+            return Rent.fromRecord(tenantId, date, payment);
+        }
+    }
+
+    static final class ExpenseSerializer extends StdSerializer<Expense> {
+        private static final long serialVersionUID = 1L;
+
+        ExpenseSerializer() { super(Expense.class); }
+
+        @Override
+        public void serialize(Expense e, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(e);
+            gen.writeFieldName(DATE_FIELD);
+            writeDate(gen, e.getDate());
+            gen.writeFieldName(CATEGORY);
+            gen.writeString(e.getCategory());
+            gen.writeFieldName(PAYEE);
+            gen.writeString(e.getPayee());
+            gen.writeFieldName(PAYMENT);
+            gen.writeNumber(e.getPayment());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class ExpenseDeserializer extends StdDeserializer<Expense> {
+        private static final long serialVersionUID = 1L;
+
+        ExpenseDeserializer() { super(Expense.class); }
+
+        @Override
+        public Expense deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            LocalDate date = null;
+            String category = null;
+            String payee = null;
+            double payment = 0;
+            for (String field = firstField(p, ctxt, handledType()); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "date" -> date = readDate(p, ctxt, Expense.class);
+                    case "category" -> category = text(p, ctxt, Expense.class);
+                    case "payee" -> payee = text(p, ctxt, Expense.class);
+                    case "payment" -> payment = number(p, ctxt, Expense.class);
+                    default -> skipUnknown(p, ctxt, Expense.class, field);
+                }
+            }
+            return Expense.fromRecord(date, category, payee, payment);
+        }
+    }
+
+    /**
+     * Returns the first field name of an object, the parser may be at its START_OBJECT or already at the name.
+     * @return Field name, null for an empty object.
+     */
+    private static String firstField(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) { return p.nextFieldName(); }
+        if (token == JsonToken.FIELD_NAME) { return p.currentName(); }
+        if (token == JsonToken.END_OBJECT) { return null; }
+        ctxt.handleUnexpectedToken(type, p);
+        return null;
+    }
+
+    private static void skipUnknown(JsonParser p, DeserializationContext ctxt, Class<?> type, String field) throws IOException {
+        ctxt.handleUnknownProperty(p, null, type, field);
+    }
+
+    private static void writeUuid(JsonGenerator gen, UUID id) throws IOException {
+        if (id == null) { gen.writeNull(); } else { gen.writeString(id.toString()); }
+    }
+
+    /**
+     * Reads a String value, null stays null. Numbers and booleans are taken as their text.
+     */
+    private static String text(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.VALUE_NULL) { return null; }
+        if (!token.isScalarValue()) { ctxt.handleUnexpectedToken(type, p); }
+        return p.getText();
+    }
+
+    /**
+     * Reads a number value, null is 0 and numbers written as Strings are accepted.
+     */
+    private static double number(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        JsonToken token = p.currentToken();
+        if (token.isNumeric()) { return p.getDoubleValue(); }
+        if (token == JsonToken.VALUE_NULL) { return 0; }
+        if (token == JsonToken.VALUE_STRING) {
+            String s = p.getText().trim();
+            try {
+                return Double.parseDouble(s);
+            } catch (NumberFormatException e) {
+                return (Double) ctxt.handleWeirdStringValue(Double.class, s, "not a valid number");
+            }
+        }
+        return (Double) ctxt.handleUnexpectedToken(type, p);
+    }
+
+    private static UUID readUuid(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        String s = text(p, ctxt, type);
+        if (s == null || s.isEmpty()) { return null; }
+        try {
+            return UUID.fromString(s);
+        } catch (IllegalArgumentException e) {
+            return (UUID) ctxt.handleWeirdStringValue(UUID.class, s, "not a valid UUID");
+        }
+    }
+
+    /**
+     * Writes a date as MM/dd/yyyy, digits are written straight into a char buffer for the years 1 to 9999.
+     */
+    private static void writeDate(JsonGenerator gen, LocalDate date) throws IOException {
+        if (date == null) {
+            gen.writeNull();
+            return;
+        }
+        int year = date.getYear();
+        if (year < 1 || year > 9999) {
+            gen.writeString(DATE.format(date));
+            return;
+        }
+        char[] c = new char[10];
+        twoDigits(c, 0, date.getMonthValue());
+        c[2] = '/';
+        twoDigits(c, 3, date.getDayOfMonth());
+        c[5] = '/';
+        twoDigits(c, 6, year / 100);
+        twoDigits(c, 8, year % 100);
+        gen.writeString(c, 0, 10);
+    }
+
+    /**
+     * Reads a MM/dd/yyyy date by hand, anything irregular is left to the DateTimeFormatter
+     * so it is accepted or rejected exactly as before.
+     */
+    private static LocalDate readDate(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        String s = text(p, ctxt, type);
+        if (s == null || s.isEmpty()) { return null; }
+        if (s.length() == 10 && s.charAt(2) == '/' && s.charAt(5) == '/') {
+            int month = digits(s, 0, 2);
+            int day = digits(s, 3, 5);
+            int year = digits(s, 6, 10);
+            if (month > 0 && day > 0 && year > 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    // e.g. 02/30, the formatter resolves or rejects it
+                }
+            }
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(s, DATE);
+        } catch (DateTimeException e) {
+            return (LocalDate) ctxt.handleWeirdStringValue(LocalDate.class, s, "expected a date as MM/dd/yyyy");
+        }
+        if (!DateIndex.isInRange(date.getYear())) {
+            return (LocalDate) ctxt.handleWeirdStringValue(LocalDate.class, s, "year is out of range");
+        }
+        return date;
+    }
+
+    private static void twoDigits(char[] c, int at, int value) {
+        c[at] = (char) ('0' + value / 10);
+        c[at + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * Parses the decimal digits in s[from, to).
+     * @return Value, -1 if any char is not a digit.
+     */
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) { return -1; }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+}
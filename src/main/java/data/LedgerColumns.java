@@ -0,0 +1,139 @@
+package data;
+
+/**
+ * Append-only table of primitive columns, the in-memory form of the Rent and Expense ledgers.
+ * Every row has a fixed number of int columns (epoch day, dictionary ids, ...) and an amount in cents.
+ * A row costs 4 bytes per int column plus 8 bytes, instead of an object graph per record.
+ *
+ * Like AppendLog, appends are serialized by the table and snapshot() is O(1):
+ * rows below the published size are never written again, so a Snapshot can be read by any thread.
+ */
+final class LedgerColumns {
+
+    /**
+     * Columns and the number of rows published in them.
+     * Arrays may be longer than size, only rows below size are valid.
+     * @param ints Int columns, ints[column][row].
+     * @param cents Amount of each row in cents.
+     * @param size Number of rows.
+     */
+    record Snapshot(int[][] ints, long[] cents, int size) {
+
+        int get(int column, int row) {
+            checkRow(row);
+            return ints[column][row];
+        }
+
+        long cents(int row) {
+            checkRow(row);
+            return cents[row];
+        }
+
+        private void checkRow(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+            }
+        }
+    }
+
+    private volatile Snapshot state;
+
+    /**
+     * Creates an empty table.
+     * @param columns Number of int columns.
+     * @param capacity Number of rows to allocate up front.
+     */
+    LedgerColumns(int columns, int capacity) {
+        int rows = Math.max(16, capacity);
+        int[][] ints = new int[columns][rows];
+        state = new Snapshot(ints, new long[rows], 0);
+    }
+
+    /**
+     * Creates a table from columns that were already filled in, without copying them.
+     * The arrays must not be written to afterwards.
+     * @param ints Int columns, ints[column][row].
+     * @param cents Amount of each row in cents.
+     * @param size Number of rows filled in.
+     */
+    LedgerColumns(int[][] ints, long[] cents, int size) {
+        state = new Snapshot(ints, cents, size);
+    }
+
+    /**
+     * Adds a row to the end of the table.
+     * @param cents Amount of the row in cents.
+     * @param values One value per int column.
+     */
+    synchronized void append(long cents, int... values) {
+        Snapshot s = ensureCapacity(state, state.size() + 1);
+        int row = s.size();
+        for (int c = 0; c < values.length; c++) {
+            s.ints()[c][row] = values[c];
+        }
+        s.cents()[row] = cents;
+        state = new Snapshot(s.ints(), s.cents(), row + 1);
+    }
+
+    /**
+     * Adds many rows to the end of the table, published to readers all at once.
+     * @param ints Int columns of the rows, ints[column][row].
+     * @param cents Amounts of the rows.
+     * @param count Number of rows to add from the arrays.
+     */
+    synchronized void appendAll(int[][] ints, long[] cents, int count) {
+        Snapshot s = ensureCapacity(state, state.size() + count);
+        int size = s.size();
+        for (int c = 0; c < ints.length; c++) {
+            System.arraycopy(ints[c], 0, s.ints()[c], size, count);
+        }
+        System.arraycopy(cents, 0, s.cents(), size, count);
+        state = new Snapshot(s.ints(), s.cents(), size + count);
+    }
+
+    /**
+     * Returns the rows appended so far.
+     * @return Snapshot, unaffected by later appends.
+     */
+    Snapshot snapshot() {
+        return state;
+    }
+
+    int size() {
+        return state.size();
+    }
+
+    /**
+     * Estimates the heap used by the columns, from their capacity.
+     * @return Estimated bytes.
+     */
+    long heapBytes() {
+        Snapshot s = state;
+        return (long) s.cents().length * (Long.BYTES + (long) Integer.BYTES * s.ints().length);
+    }
+
+    private static Snapshot ensureCapacity(Snapshot s, int capacity) {
+        if (capacity <= s.cents().length) { return s; }
+        int rows = Math.max(capacity, s.cents().length + (s.cents().length >> 1));
+        int[][] ints = new int[s.ints().length][];
+        for (int c = 0; c < ints.length; c++) {
+            ints[c] = new int[rows];
+            System.arraycopy(s.ints()[c], 0, ints[c], 0, s.size());
+        }
+        long[] cents = new long[rows];
+        System.arraycopy(s.cents(), 0, cents, 0, s.size());
+        return new Snapshot(ints, cents, s.size());
+    }
+
+    /**
+     * Converts an amount to whole cents, rounding to the nearest cent.
+     */
+    static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+}
@@ -1,33 +1,60 @@
 package data;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
-import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import handlers.FileHandler;
 import handlers.MenuHandler;
+import handlers.Metrics;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+@JsonSerialize(using = JsonCodecs.RentSerializer.class)
+@JsonDeserialize(using = JsonCodecs.RentDeserializer.class)
 public class Rent {
 
-    private static ArrayList<Rent> rent;
+    // Rent is held in columns, Rent objects are created on access
+    static final int DAY = 0, TENANT = 1;
+    private static volatile Ledger rent;
+    private static volatile ConcurrentHashMap<Integer, Long> totalsByYear = new ConcurrentHashMap<>();
+    private static volatile Set<PaymentKey> paymentKeys = ConcurrentHashMap.newKeySet();
+    private static final Metrics.Counter rangeQueries = Metrics.counter(Metrics.RANGE_QUERY);
+    private static final Metrics.Counter duplicateChecks = Metrics.counter(Metrics.DUPLICATE_CHECK);
+    // PaymentKey, its UUID reference and its set entry
+    private static final int PAYMENT_KEY_BYTES = 80;
     private UUID tenantId;
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
-    @JsonDeserialize(using = LocalDateDeserializer.class)
-    @JsonSerialize(using = LocalDateSerializer.class)
     private LocalDate date;
     private double payment;
+    private Tenant tenant;
+
+    /**
+     * Identifies a payment for duplicate checks: the same Tenant paying the same amount for the same month.
+     */
+    private record PaymentKey(UUID tenantId, int year, int month, long cents) {
+        static PaymentKey of(Rent r) {
+            return new PaymentKey(r.tenantId, r.date.getYear(), r.date.getMonthValue(), LedgerColumns.toCents(r.payment));
+        }
+    }
+
+    /**
+     * Rent columns (epoch day, tenant id), the Tenants the ids stand for and the date index of the rows.
+     */
+    record Ledger(LedgerColumns columns, Dictionary<Tenant> tenants, DateIndex dates) {}
 
     /**
      * Default Constructor
-     * Used by Jackson for JSON Mapper Reading.
+     * Save files are read through JsonCodecs, not this constructor.
      * Using this on its own accomplishes nothing.
      */
     public Rent() {}
@@ -36,6 +63,13 @@ public class Rent {
      * Private Constructor
      * Creates a new Rent Object. Constructor called by addRent().
      */
+    private Rent(Tenant tenant, LocalDate date, double payment) {
+        this.tenant = tenant;
+        this.tenantId = tenant.getId();
+        this.date = date;
+        this.payment = payment;
+    }
+
     private Rent(UUID tenantId, LocalDate date, double payment) {
         this.tenantId = tenantId;
         this.date = date;
@@ -43,17 +77,18 @@ public class Rent {
     }
 
     /**
-     * Creates a new Tenant Object and adds it to the ArrayList.
-     * This is the only way to add a new Tenant. Constructor is private.
+     * Creates a new Rent Object and adds it to the list.
+     * This is the only way to add a new Rent. Constructor is private.
+     * Safe to call while other threads read the Rent.
      * @param tenant Tenant associated to the Rent
      * @param year Year of the Payment
      * @param month Month of the Payment
      * @param payment Payment Total
      * @return Rent object added.
      */
-    public static Rent addRent(Tenant tenant, int year, int month, double payment) {
+    public static synchronized Rent addRent(Tenant tenant, int year, int month, double payment) {
         if (rent == null) {
-            rent = new ArrayList<>();
+            rent = new Ledger(new LedgerColumns(2, 0), new Dictionary<>(), new DateIndex(DAY));
         }
         if (tenant == null || tenant.getId() == null) {
             MenuHandler.systemMessage("Attempted to add Rent but there is no valid Tenant to associate to.");
@@ -63,55 +98,369 @@ public class Rent {
             MenuHandler.systemMessage("Attempted to add Rent but the month is invalid.");
             return null;
         }
-        if (year < 0) {
+        if (year < 0 || year > DateIndex.MAX_YEAR) {
             MenuHandler.systemMessage("Attempted to add Rent but the year is invalid.");
             return null;
         }
-        Rent r = new Rent(tenant.getId(), LocalDate.of(year, month, 1), payment);
-        rent.add(r);
+        long cents = LedgerColumns.toCents(payment);
+        Rent r = new Rent(tenant, LocalDate.of(year, month, 1), LedgerColumns.fromCents(cents));
+        totalsByYear.merge(year, cents, Long::sum);
+        paymentKeys.add(PaymentKey.of(r));
+        rent.columns().append(cents, DateIndex.toDay(r.date), rent.tenants().encode(tenant));
         return r;
     }
 
+    /**
+     * Creates a new Rent Object only if the same payment has not been recorded yet.
+     * @param tenant Tenant associated to the Rent
+     * @param year Year of the Payment
+     * @param month Month of the Payment
+     * @param payment Payment Total
+     * @return Rent object added, null if it is a duplicate or invalid.
+     */
+    public static synchronized Rent addRentIfAbsent(Tenant tenant, int year, int month, double payment) {
+        if (isDuplicate(tenant, year, month, payment)) {
+            MenuHandler.systemMessage("Attempted to add Rent but the same payment already exists.");
+            return null;
+        }
+        return addRent(tenant, year, month, payment);
+    }
+
+    /**
+     * Returns if the Tenant already has a payment of this amount for the month.
+     * Uses a hash of every payment in memory, no list scan is performed.
+     * Payments of archived years are looked up through the date index of the year.
+     * @param tenant Tenant associated to the Rent
+     * @param year Year of the Payment
+     * @param month Month of the Payment
+     * @param payment Payment Total
+     * @return True if the payment is already recorded, False otherwise.
+     */
+    public static boolean isDuplicate(Tenant tenant, int year, int month, double payment) {
+        duplicateChecks.increment();
+        if (tenant == null) { return false; }
+        long cents = LedgerColumns.toCents(payment);
+        if (paymentKeys.contains(new PaymentKey(tenant.getId(), year, month, cents))) { return true; }
+        return ArchiveCache.isArchived(year) && month >= 1 && month <= 12 && isArchivedDuplicate(tenant, YearMonth.of(year, month), cents);
+    }
+
+    private static boolean isArchivedDuplicate(Tenant tenant, YearMonth month, long cents) {
+        ArchiveCache.Year archived = ArchiveCache.year(month.getYear());
+        if (archived == null || archived.rent() == null) { return false; }
+        Ledger ledger = archived.rent();
+        LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+        int[] rows = ledger.dates().between(columns, DateIndex.toDay(month.atDay(1), false), DateIndex.toDay(month.atEndOfMonth(), true));
+        for (int row : rows) {
+            if (columns.cents(row) == cents && tenant.getId().equals(ledger.tenants().decode(columns.get(TENANT, row)).getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes repeated payments from a list, keeping the first occurrence of each.
+     * Useful for cleaning large lists before they are loaded.
+     * @param data List of Rent to check.
+     * @return New list without duplicates, in the original order.
+     */
+    public static ArrayList<Rent> removeDuplicates(List<Rent> data) {
+        HashSet<PaymentKey> seen = new HashSet<>();
+        ArrayList<Rent> unique = new ArrayList<>(data.size());
+        for (Rent r : data) {
+            if (seen.add(PaymentKey.of(r))) {
+                unique.add(r);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Adds many Rent Objects created with fromRecord() in one call.
+     * Intended for bulk imports, skips any Rent whose Tenant is not in memory or whose year is out of range.
+     * @param batch List of Rent to add.
+     * @return Number of Rent objects added.
+     */
+    public static synchronized int addRentBatch(List<Rent> batch) {
+        if (rent == null) {
+            rent = new Ledger(new LedgerColumns(2, batch.size()), new Dictionary<>(), new DateIndex(DAY));
+        }
+        int[][] ints = new int[2][batch.size()];
+        long[] cents = new long[batch.size()];
+        int count = 0;
+        for (Rent r : batch) {
+            Tenant t = Tenant.getTenantByID(r.tenantId);
+            if (t == null || !DateIndex.isInRange(r.date.getYear())) { continue; }
+            r.tenant = t;
+            ints[DAY][count] = DateIndex.toDay(r.date);
+            ints[TENANT][count] = rent.tenants().encode(t);
+            cents[count] = LedgerColumns.toCents(r.payment);
+            totalsByYear.merge(r.date.getYear(), cents[count], Long::sum);
+            paymentKeys.add(PaymentKey.of(r));
+            count++;
+        }
+        rent.columns().appendAll(ints, cents, count);
+        return count;
+    }
+
+    /**
+     * Creates a Rent Object from a saved record without adding it to memory.
+     * Used by JsonCodecs, pass the results to loadRent().
+     * @param tenant Tenant associated to the Rent
+     * @param date Date of the Payment
+     * @param payment Payment Total
+     * @return Rent object created.
+     */
+    public static Rent fromRecord(Tenant tenant, LocalDate date, double payment) {
+        return new Rent(tenant, date, payment);
+    }
+
+    /**
+     * Creates a Rent Object from a saved record that only has the id of its Tenant.
+     * Used by JsonCodecs, the Tenant is resolved when the Rent is loaded.
+     * @param tenantId UUID of the Tenant associated to the Rent
+     * @param date Date of the Payment
+     * @param payment Payment Total
+     * @return Rent object created.
+     */
+    static Rent fromRecord(UUID tenantId, LocalDate date, double payment) {
+        return new Rent(tenantId, date, payment);
+    }
+
     /**
      * Loads a Rent from a File into Memory
      * Can only be called from FileHandler.class
-     * @param data ArrayList loaded from a File.
+     * A list read by BinaryLedger already holds its columns, they are used as they are.
+     * @param data List loaded from a File.
      * @return True if successful, False otherwise.
      */
-    public static boolean loadRent(ArrayList<Rent> data) {
+    public static synchronized boolean loadRent(List<Rent> data) {
         StackTraceElement[] stack = Thread.currentThread().getStackTrace();
         if ((stack.length >= 3) && !(stack[2].getClassName().equals(FileHandler.class.getName()))) {
             MenuHandler.systemMessage("An unknown class tried to edit the Rent list.");
             return false;
         }
-        if (data == null || data.isEmpty()) {
+        if (data == null) {
             MenuHandler.systemMessage("No data found in rent.json... Ignoring...");
             return true;
         }
-        for (Rent r : data) {
-            if (Tenant.getTenantByID(r.tenantId) == null) {
-                MenuHandler.systemMessage("Invalid data found in rent.json... Ignoring...");
-                return false;
-            }
+        Ledger ledger = data instanceof View view && view.rows.selectsAll() ? view.ledgers.get(0) : ledgerOf(data);
+        if (ledger == null) {
+            MenuHandler.systemMessage("Invalid data found in rent.json.");
+            return false;
         }
-        Rent.rent = data;
+        Rent.paymentKeys = keysOf(ledger);
+        Rent.totalsByYear = totalsOf(ledger.columns().snapshot());
+        Rent.rent = ledger;
         return true;
     }
 
+    /**
+     * Creates the columns of a list of Rent, used for loads and for archived years.
+     * @param data Rent to hold in the columns.
+     * @return Ledger, null if a Rent belongs to a Tenant that is not in memory, has no date or its year is out of range.
+     */
+    static Ledger ledgerOf(List<Rent> data) {
+        Dictionary<Tenant> tenants = new Dictionary<>();
+        int[][] ints = new int[2][data.size()];
+        long[] cents = new long[data.size()];
+        for (int i = 0; i < data.size(); i++) {
+            Rent r = data.get(i);
+            Tenant t = Tenant.getTenantByID(r.tenantId);
+            if (t == null || r.date == null || !DateIndex.isInRange(r.date.getYear())) { return null; }
+            ints[DAY][i] = DateIndex.toDay(r.date);
+            ints[TENANT][i] = tenants.encode(t);
+            cents[i] = LedgerColumns.toCents(r.payment);
+        }
+        return new Ledger(new LedgerColumns(ints, cents, data.size()), tenants, new DateIndex(DAY));
+    }
+
+    /**
+     * Returns the columns of a list for BinaryLedger to write.
+     * A list from getRent() is read from its Snapshot without creating any Rent, any other list is encoded.
+     * The columns returned must not be appended to.
+     * @param data Rent to write.
+     * @return Ledger holding exactly the rows of the list, null if a Rent belongs to a Tenant that is not in memory.
+     */
+    static Ledger columnsOf(List<Rent> data) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            LedgerColumns.Snapshot s = view.columns.get(0);
+            Ledger ledger = view.ledgers.get(0);
+            return new Ledger(new LedgerColumns(s.ints(), s.cents(), s.size()), ledger.tenants(), ledger.dates());
+        }
+        return ledgerOf(data);
+    }
+
+    /**
+     * Returns every row of a Ledger as a List, used by BinaryLedger to hand its columns to loadRent().
+     * @param ledger Ledger to read.
+     * @return Unmodifiable List of Rent Payments
+     */
+    static List<Rent> viewOf(Ledger ledger) {
+        LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+        return new View(List.of(ledger), List.of(columns), RowSelection.all(columns.size()));
+    }
+
+    /**
+     * Creates the duplicate check keys of every row of a Ledger, without creating any Rent.
+     */
+    private static Set<PaymentKey> keysOf(Ledger ledger) {
+        LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+        Set<PaymentKey> keys = ConcurrentHashMap.newKeySet(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            LocalDate date = LocalDate.ofEpochDay(columns.get(DAY, i));
+            UUID tenantId = ledger.tenants().decode(columns.get(TENANT, i)).getId();
+            keys.add(new PaymentKey(tenantId, date.getYear(), date.getMonthValue(), columns.cents(i)));
+        }
+        return keys;
+    }
+
     /**
      * Retrieves the list of rent saved to memory.
-     * List is unmodifiable to protect the list of Rent Payments.
+     * List is an immutable snapshot, Rent added afterwards is not in it.
+     * Rent objects are created from the columns as they are read, keep them only as long as needed.
+     * Archived years are not in the list, use between() to read them.
      * @return Unmodifiable List of Rent Payments
      */
     public static List<Rent> getRent() {
-        if (rent != null) {
-            return Collections.unmodifiableList(rent);
+        Ledger ledger = rent;
+        if (ledger != null) {
+            LedgerColumns.Snapshot columns = ledger.columns().snapshot();
+            return new View(List.of(ledger), List.of(columns), RowSelection.all(columns.size()));
         }
         return null;
     }
 
-    @JsonIgnore
-    public Tenant getTenant() { return Tenant.getTenantByID(tenantId); }
+    /**
+     * Retrieves the rent paid between two dates, oldest first.
+     * Uses the date index of the Rent, only the payments in the range are read.
+     * Archived years in the range are read from the Archive and included.
+     * @param from First date (inclusive), null for no lower limit.
+     * @param to Last date (inclusive), null for no upper limit.
+     * @return Unmodifiable List of Rent Payments, null if there is no Rent.
+     */
+    public static List<Rent> between(LocalDate from, LocalDate to) {
+        rangeQueries.increment();
+        ArrayList<Ledger> ledgers = new ArrayList<>();
+        for (ArchiveCache.Year archived : ArchiveCache.years(from == null ? Integer.MIN_VALUE : from.getYear(),
+                to == null ? Integer.MAX_VALUE : to.getYear())) {
+            if (archived.rent() != null) { ledgers.add(archived.rent()); }
+        }
+        Ledger ledger = rent;
+        if (ledger != null) { ledgers.add(ledger); }
+        if (ledgers.isEmpty()) { return null; }
+
+        int fromDay = DateIndex.toDay(from, false), toDay = DateIndex.toDay(to, true);
+        ArrayList<LedgerColumns.Snapshot> snapshots = new ArrayList<>(ledgers.size());
+        ArrayList<int[]> rows = new ArrayList<>(ledgers.size());
+        for (Ledger l : ledgers) {
+            LedgerColumns.Snapshot columns = l.columns().snapshot();
+            snapshots.add(columns);
+            rows.add(l.dates().between(columns, fromDay, toDay));
+        }
+        return new View(ledgers, snapshots, RowSelection.merge(snapshots, rows, DAY));
+    }
+
+    /**
+     * Counts the Rent of a list per month.
+     * A list from getRent() is counted through its date index without creating any Rent, any other list is read.
+     * @param data Rent to count.
+     * @return Number of payments in each month that has any, in month order.
+     */
+    public static SortedMap<YearMonth, Integer> countByMonth(List<Rent> data) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            return view.ledgers.get(0).dates().countByMonth(view.columns.get(0));
+        }
+        TreeMap<YearMonth, Integer> counts = new TreeMap<>();
+        for (Rent r : data) {
+            counts.merge(YearMonth.from(r.date), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Retrieves the Rent of a list paid in one month.
+     * A list from getRent() is searched through its date index, any other list is read.
+     * @param data Rent to search.
+     * @param month Month of the payments.
+     * @return Unmodifiable List of the payments in the month, oldest first for a list from getRent().
+     */
+    public static List<Rent> inMonth(List<Rent> data, YearMonth month) {
+        if (data instanceof View view && view.rows.selectsAll()) {
+            Ledger ledger = view.ledgers.get(0);
+            LedgerColumns.Snapshot columns = view.columns.get(0);
+            int[] rows = ledger.dates().between(columns, DateIndex.toDay(month.atDay(1), false), DateIndex.toDay(month.atEndOfMonth(), true));
+            return new View(List.of(ledger), List.of(columns), RowSelection.merge(List.of(columns), List.of(rows), DAY));
+        }
+        ArrayList<Rent> inMonth = new ArrayList<>();
+        for (Rent r : data) {
+            if (YearMonth.from(r.date).equals(month)) { inMonth.add(r); }
+        }
+        return Collections.unmodifiableList(inMonth);
+    }
+
+    /**
+     * Returns the Rent columns for aggregations within the data package.
+     * @return Ledger, null if there is no Rent.
+     */
+    static Ledger ledger() {
+        return rent;
+    }
+
+    /**
+     * Estimates the heap used by the Rent in memory: columns, date index, Tenant ids and duplicate check keys.
+     * Archived years are counted by ArchiveCache.getHeapEstimate().
+     * @return Estimated bytes, 0 if there is no Rent.
+     */
+    public static long getHeapEstimate() {
+        Ledger ledger = rent;
+        if (ledger == null) { return 0; }
+        return heapEstimate(ledger) + (long) paymentKeys.size() * PAYMENT_KEY_BYTES;
+    }
+
+    static long heapEstimate(Ledger ledger) {
+        return ledger.columns().heapBytes() + ledger.dates().heapBytes() + ledger.tenants().heapBytes();
+    }
+
+    /**
+     * Returns the sum of all rent payments made in a year.
+     * Totals are kept up to date on every add / load, no list scan is performed.
+     * The total of an archived year is added when the year is read from the Archive.
+     * @param year Year to total.
+     * @return Total paid in the year, 0 if there are none.
+     */
+    public static double getTotalByYear(int year) {
+        long cents = totalsByYear.getOrDefault(year, 0L);
+        ArchiveCache.Year archived = ArchiveCache.isArchived(year) ? ArchiveCache.year(year) : null;
+        if (archived != null) { cents += archived.rentCents(); }
+        return LedgerColumns.fromCents(cents);
+    }
+
+    /**
+     * Calculates the per-year totals, in cents, of the columns.
+     * Called once whenever the Rent is replaced by a load.
+     */
+    private static ConcurrentHashMap<Integer, Long> totalsOf(LedgerColumns.Snapshot columns) {
+        ConcurrentHashMap<Integer, Long> totals = new ConcurrentHashMap<>();
+        int[] days = columns.ints()[DAY];
+        long[] cents = columns.cents();
+        for (int i = 0; i < columns.size(); i++) {
+            totals.merge(LocalDate.ofEpochDay(days[i]).getYear(), cents[i], Long::sum);
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the Tenant associated to the Rent.
+     * Uses the Tenant resolved on add / load, falls back to the UUID index otherwise.
+     * @return Tenant Object, null if not found.
+     */
+    public Tenant getTenant() {
+        if (tenant == null) {
+            tenant = Tenant.getTenantByID(tenantId);
+        }
+        return tenant;
+    }
     public UUID getTenantId() { return tenantId; }
     public LocalDate getDate() { return date; }
     public double getPayment() { return payment; }
@@ -119,9 +468,9 @@ public class Rent {
     public boolean checkDuplicate(Tenant t, LocalDate date, double payment) {
         if (this.payment != payment) { return false; }
         if (!this.date.equals(date)) { return false; }
-        if (Tenant.getTenantByID(this.tenantId) == null) { return false; }
-        if (!Tenant.getTenantByID(this.tenantId).equals(t)) { return false; }
-        return true;
+        Tenant tenant = getTenant();
+        if (tenant == null) { return false; }
+        return tenant.equals(t);
     }
 
     /**
@@ -143,4 +492,39 @@ public class Rent {
     public String toString() {
         return getTenant() + " - " + this.payment + " (" + this.date.getMonth() + " " + this.date.getYear() + ")";
     }
+
+    /**
+     * Read-only List over selected rows of Snapshots of one or more Rent ledgers.
+     * Each get() creates a Rent from its row.
+     */
+    private static final class View extends AbstractList<Rent> implements RandomAccess {
+        private final List<Ledger> ledgers;
+        private final List<LedgerColumns.Snapshot> columns;
+        private final RowSelection rows;
+
+        /**
+         * @param ledgers Ledgers the rows are from, for the Tenant dictionaries.
+         * @param columns Snapshot of each Ledger.
+         * @param rows Rows in the List, parts are positions in ledgers.
+         */
+        private View(List<Ledger> ledgers, List<LedgerColumns.Snapshot> columns, RowSelection rows) {
+            this.ledgers = ledgers;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        @Override
+        public Rent get(int index) {
+            int part = rows.part(index), row = rows.row(index);
+            LedgerColumns.Snapshot c = columns.get(part);
+            Tenant t = ledgers.get(part).tenants().decode(c.get(TENANT, row));
+            LocalDate date = LocalDate.ofEpochDay(c.get(DAY, row));
+            return new Rent(t, date, LedgerColumns.fromCents(c.cents(row)));
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows selected from one or more ledger parts (the Rent or Expenses in memory and archived years),
+ * used by the list views of Rent and Expense. Rows merged from several parts are in date order.
+ */
+final class RowSelection {
+
+    private final int part;
+    private final int[] parts;
+    private final int[] rows;
+    private final int size;
+
+    private RowSelection(int part, int[] parts, int[] rows, int size) {
+        this.part = part;
+        this.parts = parts;
+        this.rows = rows;
+        this.size = size;
+    }
+
+    /**
+     * Selects every row of a single part.
+     * @param size Number of rows in the part.
+     */
+    static RowSelection all(int size) {
+        return new RowSelection(0, null, null, size);
+    }
+
+    /**
+     * Selects rows from several parts, merged by date.
+     * Rows on the same day keep the order of the parts, then the order within their part.
+     * @param snapshots Parts the rows are from.
+     * @param rowsByPart Rows of each part, each in date order.
+     * @param dayColumn Int column holding the epoch day of each row.
+     */
+    static RowSelection merge(List<LedgerColumns.Snapshot> snapshots, List<int[]> rowsByPart, int dayColumn) {
+        int total = 0, nonEmpty = 0, only = 0;
+        for (int p = 0; p < rowsByPart.size(); p++) {
+            total += rowsByPart.get(p).length;
+            if (rowsByPart.get(p).length > 0) {
+                nonEmpty++;
+                only = p;
+            }
+        }
+        if (nonEmpty <= 1) {
+            int[] rows = rowsByPart.isEmpty() ? new int[0] : rowsByPart.get(only);
+            return new RowSelection(only, null, rows, rows.length);
+        }
+
+        // Sort (day, position in the concatenated parts), the position keeps ties stable
+        long[] keys = new long[total];
+        int[] offsets = new int[rowsByPart.size() + 1];
+        for (int p = 0, k = 0; p < rowsByPart.size(); p++) {
+            int[] days = snapshots.get(p).ints()[dayColumn];
+            for (int row : rowsByPart.get(p)) {
+                keys[k] = ((long) days[row] << 32) | k;
+                k++;
+            }
+            offsets[p + 1] = k;
+        }
+        Arrays.sort(keys);
+
+        int[] parts = new int[total];
+        int[] rows = new int[total];
+        for (int i = 0; i < total; i++) {
+            int k = (int) keys[i];
+            int p = Arrays.binarySearch(offsets, k);
+            p = p >= 0 ? p : -p - 2;
+            while (offsets[p + 1] == k) { p++; }
+            parts[i] = p;
+            rows[i] = rowsByPart.get(p)[k - offsets[p]];
+        }
+        return new RowSelection(0, parts, rows, total);
+    }
+
+    /**
+     * Returns if every row of a single part is selected, see all().
+     */
+    boolean selectsAll() {
+        return parts == null && rows == null;
+    }
+
+    int part(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return parts == null ? part : parts[index];
+    }
+
+    int row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return rows == null ? index : rows[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+}
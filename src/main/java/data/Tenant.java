@@ -1,23 +1,34 @@
 package data;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import handlers.FileHandler;
 import handlers.MenuHandler;
+import handlers.Metrics;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+@JsonSerialize(using = JsonCodecs.TenantSerializer.class)
+@JsonDeserialize(using = JsonCodecs.TenantDeserializer.class)
 public class Tenant {
 
-    private static ArrayList<Tenant> tenants;
+    private static volatile AppendLog<Tenant> tenants;
+    private static volatile ConcurrentHashMap<UUID, Tenant> tenantsById;
+    private static volatile ConcurrentHashMap<Integer, AppendLog<Tenant>> tenantsByApt;
+    private static final Metrics.Counter lookups = Metrics.counter(Metrics.TENANT_LOOKUP);
+    // Tenant, UUID and name header plus its slots in the list and both indexes
+    private static final int TENANT_BYTES = 200;
     private UUID id;
     private String name;
     private int aptNum;
 
     /**
      * Default Constructor
-     * Used by Jackson for JSON Mapper Reading.
+     * Save files are read through JsonCodecs, not this constructor.
      * Using this on its own accomplishes nothing.
      */
     public Tenant() {}
@@ -27,31 +38,52 @@ public class Tenant {
      * Creates a new Tenant Object. Constructor called by addTenant().
      */
     private Tenant(String name, int aptNum) {
+        this(UUID.randomUUID(), name, aptNum);
+    }
+
+    private Tenant(UUID id, String name, int aptNum) {
+        this.id = id;
         this.name = name;
         this.aptNum = aptNum;
-        this.id = UUID.randomUUID();
     }
 
     /**
-     * Creates a new Tenant Object and adds it to the ArrayList.
+     * Creates a new Tenant Object and adds it to the list.
      * This is the only way to add a new Tenant. Constructor is private.
+     * Safe to call while other threads read the Tenants.
      */
-    public static Tenant addTenant(String name, int aptNum) {
+    public static synchronized Tenant addTenant(String name, int aptNum) {
         if (tenants == null) {
-            tenants = new ArrayList<>();
+            tenantsById = new ConcurrentHashMap<>();
+            tenantsByApt = new ConcurrentHashMap<>();
+            tenants = new AppendLog<>();
         }
         Tenant t = new Tenant(name, aptNum);
-        tenants.add(t);
+        tenantsById.put(t.getId(), t);
+        tenantsByApt.computeIfAbsent(aptNum, k -> new AppendLog<>()).append(t);
+        tenants.append(t);
         return t;
     }
 
+    /**
+     * Creates a Tenant Object from a saved record without adding it to memory.
+     * Used by JsonCodecs and by handlers that produce or read save files without going through Jackson.
+     * @param id UUID of the Tenant.
+     * @param name Name of the Tenant.
+     * @param aptNum Apartment number of the Tenant.
+     * @return Tenant object created.
+     */
+    public static Tenant fromRecord(UUID id, String name, int aptNum) {
+        return new Tenant(id, name, aptNum);
+    }
+
     /**
      * Loads a Tenant from a File into Memory
      * Can only be called from FileHandler.class
      * @param data ArrayList loaded from a File.
      * @return True if successful, False otherwise.
      */
-    public static boolean loadTenants(ArrayList<Tenant> data) {
+    public static synchronized boolean loadTenants(ArrayList<Tenant> data) {
         StackTraceElement[] stack = Thread.currentThread().getStackTrace();
         if ((stack.length >= 3) && !(stack[2].getClassName().equals(FileHandler.class.getName()))) {
             MenuHandler.systemMessage("An unknown class tried to edit the Tenants list.");
@@ -61,36 +93,91 @@ public class Tenant {
             MenuHandler.systemMessage("No data found in tenant.json... Ignoring...");
             return true;
         }
-        Tenant.tenants = data;
+        ConcurrentHashMap<UUID, Tenant> index = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, AppendLog<Tenant>> aptIndex = new ConcurrentHashMap<>();
+        for (Tenant t : data) {
+            index.put(t.getId(), t);
+            aptIndex.computeIfAbsent(t.getAptNum(), k -> new AppendLog<>()).append(t);
+        }
+        Tenant.tenantsById = index;
+        Tenant.tenantsByApt = aptIndex;
+        Tenant.tenants = new AppendLog<>(data);
         return true;
     }
 
     /**
      * Retrieves the list of tenants saved to memory.
-     * List is unmodifiable to protect the list of Tenants.
+     * List is an immutable snapshot, Tenants added afterwards are not in it.
      * @return Unmodifiable List of Tenants
      */
     public static List<Tenant> getTenants() {
-        if (tenants != null) {
-            return Collections.unmodifiableList(tenants);
+        AppendLog<Tenant> log = tenants;
+        if (log != null) {
+            return log.snapshot();
         }
         return null;
     }
 
+    /**
+     * Estimates the heap used by the Tenants in memory and their indexes.
+     * @return Estimated bytes, 0 if there are no Tenants.
+     */
+    public static long getHeapEstimate() {
+        List<Tenant> list = getTenants();
+        if (list == null) { return 0; }
+        long bytes = 0;
+        for (Tenant t : list) {
+            bytes += TENANT_BYTES + (t.name == null ? 0 : t.name.length());
+        }
+        return bytes;
+    }
+
     public UUID getId() { return this.id; }
     public String getName() { return this.name; }
     public int getAptNum() { return this.aptNum; }
 
     /**
      * Returns a Tenant Object based on the ID.
+     * Looks up the ID in the UUID index, no list scan is performed.
      * @param id UUID to search for.
      * @return Tenant Object, null if not found.
      */
     public static Tenant getTenantByID(UUID id) {
-        for (Tenant t : tenants) {
-            if (t.getId().equals(id)) { return t; }
+        lookups.increment();
+        ConcurrentHashMap<UUID, Tenant> index = tenantsById;
+        if (index == null || id == null) { return null; }
+        return index.get(id);
+    }
+
+    /**
+     * Returns the current Tenant of an apartment.
+     * The current Tenant is the most recently added Tenant with the apartment number.
+     * @param aptNum Apartment number to search for.
+     * @return Tenant Object, null if the apartment has no tenants.
+     */
+    public static Tenant getCurrentTenant(int aptNum) {
+        lookups.increment();
+        ConcurrentHashMap<Integer, AppendLog<Tenant>> index = tenantsByApt;
+        if (index == null) { return null; }
+        AppendLog<Tenant> history = index.get(aptNum);
+        if (history == null) { return null; }
+        List<Tenant> snapshot = history.snapshot();
+        return snapshot.isEmpty() ? null : snapshot.get(snapshot.size() - 1);
+    }
+
+    /**
+     * Returns every Tenant that has lived in an apartment.
+     * List is ordered oldest to newest and is an immutable snapshot.
+     * @param aptNum Apartment number to search for.
+     * @return Unmodifiable List of Tenants, empty if the apartment has no tenants.
+     */
+    public static List<Tenant> getTenantHistory(int aptNum) {
+        ConcurrentHashMap<Integer, AppendLog<Tenant>> index = tenantsByApt;
+        AppendLog<Tenant> history = index == null ? null : index.get(aptNum);
+        if (history == null) {
+            return Collections.emptyList();
         }
-        return null;
+        return history.snapshot();
     }
 
     /**
@@ -106,6 +193,16 @@ public class Tenant {
         return this.getId().equals(t.getId());
     }
 
+    /**
+     * Hash Code of the tenant.
+     * Only uses the UUID Value, consistent with equals().
+     * @return Hash of the UUID.
+     */
+    @Override
+    public int hashCode() {
+        return this.id == null ? 0 : this.id.hashCode();
+    }
+
     @Override
     public String toString() {
         return String.format("%s (Apt: %d)", this.name, this.aptNum);
@@ -0,0 +1,330 @@
+package handlers;
+
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Imports Rent and Expenses in bulk from CSV files (bank / property manager exports).
+ * Lines are parsed and validated in parallel chunks, then added through the batch API of the data classes
+ * and saved once at the end of the import.
+ *
+ * Rent columns:    apartment number or tenant id, year, month, amount
+ * Expense columns: date (MM/dd/yyyy or yyyy-MM-dd), category, payee, amount
+ * A first line made of the column names (see RENT_HEADER / EXPENSE_HEADER, any case) is skipped as a header,
+ * any other first line is imported or reported like the rest. Fields may be quoted with ".
+ */
+public final class CsvImporter {
+
+    private static final int CHUNK_SIZE = 10_000;
+    private static final int MAX_ERRORS_SHOWN = 10;
+    private static final DateTimeFormatter US_DATE = DateTimeFormatter.ofPattern("M/d/yyyy");
+    // Largest amount whose cents still fit in a long
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / 100.0;
+    // Years with more digits are typing errors
+    private static final int MAX_YEAR = 9999;
+    // Accepted names of each column
+    private static final List<Set<String>> RENT_HEADER = List.of(
+            Set.of("apartment", "apt", "tenant", "tenant id"), Set.of("year"), Set.of("month"), Set.of("amount", "payment"));
+    private static final List<Set<String>> EXPENSE_HEADER = List.of(
+            Set.of("date"), Set.of("category"), Set.of("payee"), Set.of("amount", "payment"));
+
+    /**
+     * Lines of one chunk that parsed, and the errors for those that did not.
+     */
+    private record Chunk<T>(List<T> records, List<String> errors) {}
+
+    /**
+     * Lines of one chunk as read from the file, and the line number of the first one.
+     */
+    private record Lines(int first, List<String> lines) {}
+
+    /**
+     * Parses a single line into a record, reporting problems through the error list.
+     */
+    private interface LineParser<T> {
+        T parse(String[] fields, int lineNumber, List<String> errors);
+    }
+
+    private CsvImporter() {}
+
+    /**
+     * Imports Rent payments from a CSV file.
+     * Each payment is associated to the Tenant with the given id, or to the current Tenant of the apartment.
+     * Payments that are already recorded, or repeated in the file, are skipped.
+     * @param file CSV file to import.
+     * @return True if the file was read and saved, False otherwise.
+     */
+    public static boolean importRent(File file) {
+        Metrics.Timer timer = Metrics.start(Metrics.IMPORT);
+        ArrayList<Rent> rent = new ArrayList<>();
+        ArrayList<String> errors = new ArrayList<>();
+        if (!readRent(file, rent, errors)) { return false; }
+        ArrayList<Rent> unique = withoutDuplicates(rent);
+
+        int added = Rent.addRentBatch(unique);
+        timer.stop(added, file.length());
+        MenuHandler.systemMessage(String.format("Imported %d rent payments from %s (%d duplicates skipped, %d invalid lines).",
+                added, file.getName(), rent.size() - unique.size(), errors.size()));
+        report(errors);
+        return FileHandler.getInstance().saveData();
+    }
+
+    /**
+     * Imports Expenses from a CSV file.
+     * @param file CSV file to import.
+     * @return True if the file was read and saved, False otherwise.
+     */
+    public static boolean importExpenses(File file) {
+        Metrics.Timer timer = Metrics.start(Metrics.IMPORT);
+        ArrayList<Expense> expenses = new ArrayList<>();
+        ArrayList<String> errors = new ArrayList<>();
+        if (!readExpenses(file, expenses, errors)) { return false; }
+
+        int added = Expense.addExpenseBatch(expenses);
+        timer.stop(added, file.length());
+        MenuHandler.systemMessage(String.format("Imported %d expenses from %s (%d invalid lines).",
+                added, file.getName(), errors.size()));
+        report(errors);
+        return FileHandler.getInstance().saveData();
+    }
+
+    /**
+     * Reads the Rent payments of a CSV file without adding them.
+     * @param file CSV file to read.
+     * @param rent List the valid payments are added to, in file order.
+     * @param errors List a message for each invalid line is added to.
+     * @return True if the file could be read, False otherwise.
+     */
+    static boolean readRent(File file, List<Rent> rent, List<String> errors) {
+        return parse(file, RENT_HEADER, CsvImporter::parseRent, rent, errors);
+    }
+
+    /**
+     * Reads the Expenses of a CSV file without adding them.
+     * @param file CSV file to read.
+     * @param expenses List the valid expenses are added to, in file order.
+     * @param errors List a message for each invalid line is added to.
+     * @return True if the file could be read, False otherwise.
+     */
+    static boolean readExpenses(File file, List<Expense> expenses, List<String> errors) {
+        return parse(file, EXPENSE_HEADER, CsvImporter::parseExpense, expenses, errors);
+    }
+
+    /**
+     * Drops the payments that are already in memory, then the repeats within the list.
+     * @param rent Payments read from a file.
+     * @return New list of the payments to add, in the original order.
+     */
+    static ArrayList<Rent> withoutDuplicates(List<Rent> rent) {
+        ArrayList<Rent> fresh = new ArrayList<>(rent.size());
+        for (Rent r : rent) {
+            if (!Rent.isDuplicate(r.getTenant(), r.getDate().getYear(), r.getDate().getMonthValue(), r.getPayment())) {
+                fresh.add(r);
+            }
+        }
+        return Rent.removeDuplicates(fresh);
+    }
+
+    /**
+     * Reads a CSV file and parses its lines in parallel chunks.
+     * The file is streamed, only one chunk per worker thread is held in memory at a time.
+     * Records and errors are returned in file order.
+     * @param file CSV file to read.
+     * @param header Accepted names of each column, also the number of columns expected per line.
+     * @param parser Converts the fields of one line to a record.
+     * @param records List the parsed records are added to.
+     * @param errors List the errors are added to.
+     * @return True if the file could be read, False otherwise.
+     */
+    private static <T> boolean parse(File file, List<Set<String>> header, LineParser<T> parser, List<T> records, List<String> errors) {
+        int columns = header.size();
+        int window = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            int lineNumber = 1;
+            if (line != null && isHeader(line, header)) {
+                line = in.readLine();
+                lineNumber++;
+            }
+
+            while (line != null) {
+                // Read up to one chunk per worker, then parse them in parallel
+                ArrayList<Lines> chunks = new ArrayList<>(window);
+                while (line != null && chunks.size() < window) {
+                    ArrayList<String> lines = new ArrayList<>(CHUNK_SIZE);
+                    int first = lineNumber;
+                    while (line != null && lines.size() < CHUNK_SIZE) {
+                        lines.add(line);
+                        line = in.readLine();
+                        lineNumber++;
+                    }
+                    chunks.add(new Lines(first, lines));
+                }
+
+                List<Chunk<T>> results = chunks.parallelStream()
+                        .map(chunk -> parseChunk(chunk, columns, parser))
+                        .toList();
+                for (Chunk<T> chunk : results) {
+                    records.addAll(chunk.records());
+                    errors.addAll(chunk.errors());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to read " + file.getName() + ", please check the file path.");
+            return false;
+        }
+        return true;
+    }
+
+    private static <T> Chunk<T> parseChunk(Lines chunk, int columns, LineParser<T> parser) {
+        ArrayList<T> parsed = new ArrayList<>(chunk.lines().size());
+        ArrayList<String> failed = new ArrayList<>();
+        for (int i = 0; i < chunk.lines().size(); i++) {
+            String line = chunk.lines().get(i);
+            int lineNumber = chunk.first() + i;
+            if (line.isBlank()) { continue; }
+            String[] fields = split(line);
+            if (fields.length != columns) {
+                failed.add(String.format("Line %d: expected %d columns but found %d.", lineNumber, columns, fields.length));
+                continue;
+            }
+            T record = parser.parse(fields, lineNumber, failed);
+            if (record != null) { parsed.add(record); }
+        }
+        return new Chunk<>(parsed, failed);
+    }
+
+    private static Rent parseRent(String[] fields, int lineNumber, List<String> errors) {
+        try {
+            Tenant t = fields[0].contains("-")
+                    ? Tenant.getTenantByID(UUID.fromString(fields[0]))
+                    : Tenant.getCurrentTenant(Integer.parseInt(fields[0]));
+            if (t == null) {
+                errors.add("Line " + lineNumber + ": no tenant found for " + fields[0] + ".");
+                return null;
+            }
+            int year = Integer.parseInt(fields[1]);
+            int month = Integer.parseInt(fields[2]);
+            double payment = parseAmount(fields[3]);
+            if (year < 0 || year > MAX_YEAR || month < 1 || month > 12 || payment < 0) {
+                errors.add("Line " + lineNumber + ": year, month or amount is out of range.");
+                return null;
+            }
+            return Rent.fromRecord(t, LocalDate.of(year, month, 1), payment);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            errors.add("Line " + lineNumber + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Expense parseExpense(String[] fields, int lineNumber, List<String> errors) {
+        try {
+            LocalDate date = parseDate(fields[0]);
+            double payment = parseAmount(fields[3]);
+            if (date.getYear() < 0 || date.getYear() > MAX_YEAR) {
+                errors.add("Line " + lineNumber + ": year is out of range.");
+                return null;
+            }
+            if (payment < 0) {
+                errors.add("Line " + lineNumber + ": amount is negative.");
+                return null;
+            }
+            return Expense.fromRecord(date, fields[1], fields[2], payment);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            errors.add("Line " + lineNumber + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parses an amount, ignoring currency signs and thousands separators (e.g. "$1,200.50").
+     * NaN, Infinity and amounts too large to count in cents are rejected.
+     */
+    private static double parseAmount(String s) {
+        double amount = Double.parseDouble(s.replace("$", "").replace(",", ""));
+        if (!Double.isFinite(amount) || Math.abs(amount) >= MAX_AMOUNT) {
+            throw new NumberFormatException("amount " + s + " is not a valid number.");
+        }
+        return amount;
+    }
+
+    private static LocalDate parseDate(String s) {
+        try {
+            return LocalDate.parse(s, US_DATE);
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(s);
+        }
+    }
+
+    /**
+     * A header is a first line with one accepted name per column.
+     */
+    private static boolean isHeader(String line, List<Set<String>> header) {
+        String[] fields = split(line);
+        if (fields.length != header.size()) { return false; }
+        for (int i = 0; i < fields.length; i++) {
+            if (!header.get(i).contains(fields[i].toLowerCase(Locale.ROOT))) { return false; }
+        }
+        return true;
+    }
+
+    /**
+     * Splits one CSV line into trimmed fields.
+     * Fields may be wrapped in double quotes, a doubled quote inside a quoted field is a literal quote.
+     */
+    private static String[] split(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    private static void report(List<String> errors) {
+        for (int i = 0; i < Math.min(errors.size(), MAX_ERRORS_SHOWN); i++) {
+            MenuHandler.systemMessage(errors.get(i));
+        }
+        if (errors.size() > MAX_ERRORS_SHOWN) {
+            MenuHandler.systemMessage("... and " + (errors.size() - MAX_ERRORS_SHOWN) + " more invalid lines.");
+        }
+    }
+
+}
@@ -1,16 +1,46 @@
 package handlers;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import data.ArchiveCache;
+import data.BinaryLedger;
 import data.Expense;
 import data.Rent;
 import data.Tenant;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controls all file saving and loading.
@@ -21,11 +51,55 @@ public class FileHandler {
 
     private static FileHandler instance;
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter recordWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    // Readers and writers bound to one type, so the codec is looked up once instead of per record
+    private static final ObjectReader tenantReader = mapper.readerFor(Tenant.class);
+    private static final ObjectReader rentReader = mapper.readerFor(Rent.class);
+    private static final ObjectReader expenseReader = mapper.readerFor(Expense.class);
+    private static final ObjectWriter tenantWriter = recordWriter.forType(Tenant.class);
+    private static final ObjectWriter rentWriter = recordWriter.forType(Rent.class);
+    private static final ObjectWriter expenseWriter = recordWriter.forType(Expense.class);
+    private static final ExecutorService ioPool = Executors.newFixedThreadPool(Math.max(3, Runtime.getRuntime().availableProcessors()), r -> {
+        Thread t = new Thread(r, "FileHandler-IO");
+        t.setDaemon(true);
+        return t;
+    });
     private static final File dir = new File("." + System.getProperty("file.separator") + "save_data");
     private static final File fileTenant = new File(dir, "tenant.json");
     private static final File fileRent = new File(dir, "rent.json");
     private static final File fileExpense = new File(dir, "expense.json");
     private static final File fileLogin = new File(dir, "login.json");
+    private static final File fileJournal = new File(dir, "journal.jsonl");
+    private static final File fileLedger = new File(dir, "ledger.bin");
+    private static final File fileDictionary = new File(dir, "dictionary.json");
+    private static final File archiveDir = new File(dir, "archive");
+    private static final ShardedLedger shards = new ShardedLedger(new File(dir, "shards"));
+    private static final int JOURNAL_COMPACT_LIMIT = 500;
+    private int journalEntries = 0;
+
+    // Write-Behind State
+    private final ConcurrentLinkedQueue<Object> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private ExecutorService writer;
+    private volatile boolean writeBehind = false;
+    private volatile boolean writeFailed = false;
+    private volatile boolean binarySnapshots = false;
+    private volatile boolean sharded = false;
+    private volatile int activeYears = 0;
+    private volatile YearArchive archive = new YearArchive(archiveDir);
+    // Rows in tenant.json and dictionary.json as last read or written, sharded saves skip them while unchanged
+    private volatile long tenantRows = -1;
+    private volatile long dictionaryRows = -1;
+
+    // Background Load State, see startLoading()
+    private volatile CompletableFuture<Boolean> loading;
+    private volatile CompletableFuture<Void> tenantsLoaded = CompletableFuture.completedFuture(null);
+
+    /**
+     * Snapshot of every list taken when a save is requested in write-behind mode.
+     * The data classes hand out immutable snapshots, so no copy is needed.
+     */
+    private record Snapshot(List<Tenant> tenants, List<Rent> rent, List<Expense> expenses, List<String> dictionary) {}
 
     private FileHandler() {}
 
@@ -41,48 +115,543 @@ public class FileHandler {
         return instance;
     }
 
+    /**
+     * Returns the ObjectMapper used for the save files.
+     * Shared with other handlers so every JSON output uses the same format.
+     * @return ObjectMapper Instance
+     */
+    static ObjectMapper getMapper() {
+        return mapper;
+    }
+
     /**
      * Loads all data from saved files.
+     * The three save files are read at the same time, one record at a time.
+     * If a binary snapshot (ledger.bin) exists, Rent and Expenses are read from it instead of the JSON files.
+     * Otherwise if monthly shards (save_data/shards) exist, every shard is read in parallel instead, see setSharded().
      * Rent must load AFTER Tenant, each Rent object is associated to a Tenant.
+     * Tenants are loaded as soon as they and the journal are read, without waiting for Rent and Expenses.
+     * The category / payee dictionary loads BEFORE Expenses, so saved spellings and ids are kept.
+     * Records in the journal are replayed on top of the saved files before being passed on.
+     * Closed years are rolled into the archive before being passed on, see setArchive().
      * Takes advantage of Jackson Core for JSON Parsing.
      */
     public boolean loadData() {
+        Metrics.Timer timer = Metrics.start(Metrics.LOAD);
+        long bytes = bytesOf(fileTenant, fileRent, fileExpense, fileLedger, fileDictionary, fileJournal) + shards.bytes();
+        boolean success = load();
+        timer.stop(sizeOf(Tenant.getTenants()) + sizeOf(Rent.getRent()) + sizeOf(Expense.getExpenses()), bytes);
+        return success;
+    }
+
+    /**
+     * Starts loadData() on a background thread and returns right away, e.g. while the login prompt is shown.
+     * Tenants are loaded as soon as their save file and the journal are read, Rent and Expenses once the load is done.
+     * Use awaitTenants() / awaitData() before reading or changing the data.
+     * Does nothing while a load is already running.
+     */
+    public synchronized void startLoading() {
+        if (loading != null && !loading.isDone()) { return; }
+        CompletableFuture<Boolean> load = new CompletableFuture<>();
+        CompletableFuture<Void> tenants = new CompletableFuture<>();
+        loading = load;
+        tenantsLoaded = tenants;
+        Thread loader = new Thread(() -> {
+            try {
+                load.complete(loadData());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                MenuHandler.systemMessage("An error has occurred, please look at the above Stacktrace for more info.");
+                load.complete(false);
+            } finally {
+                tenants.complete(null);
+            }
+        }, "FileHandler-Load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Blocks until the Tenants of a background load are in memory.
+     * Returns right away if no background load was started.
+     */
+    public void awaitTenants() {
+        CompletableFuture<Void> tenants = tenantsLoaded;
+        if (!tenants.isDone()) {
+            MenuHandler.systemMessage("Loading tenants, please wait...");
+        }
+        tenants.join();
+    }
+
+    /**
+     * Blocks until a background load is done.
+     * Returns right away if no background load was started.
+     * @return True if the load succeeded (or none was started), False otherwise.
+     */
+    public boolean awaitData() {
+        CompletableFuture<Boolean> load = loading;
+        if (load == null) { return true; }
+        if (!load.isDone()) {
+            MenuHandler.systemMessage("Loading saved data, please wait...");
+        }
+        return load.join();
+    }
+
+    /**
+     * Loads all data from saved files, see loadData().
+     */
+    private boolean load() {
+        ArrayList<Tenant> tenants;
+        List<Rent> rent;
+        List<Expense> expenses;
+        ArrayList<String> dictionary;
+        YearArchive archive = this.archive;
+        boolean rolled = false;
+        ShardedLedger.Reading shardTasks = null;
+        tenantRows = -1;
+        dictionaryRows = -1;
+        shards.forget();
         try {
-            // Loading Tenant File
-            if (fileTenant.exists() && fileTenant.length() > 0) {
-                ArrayList<Tenant> data = mapper.readValue(fileTenant, new TypeReference<>() {});
-                Tenant.loadTenants(data);
+            // Loading Save Files, Tenants are read on this thread while the pool reads the rest
+            Future<ArrayList<String>> dictionaryTask = ioPool.submit(FileHandler::readDictionary);
+            Future<ArrayList<Rent>> rentTask = null;
+            Future<ArrayList<Expense>> expenseTask = null;
+            if (!fileLedger.exists() && shards.exists()) {
+                shardTasks = shards.read(ioPool);
+            } else if (!fileLedger.exists()) {
+                rentTask = ioPool.submit(() -> readList(fileRent, rentReader, "Rent"));
+                expenseTask = ioPool.submit(() -> readList(fileExpense, expenseReader, "Expense"));
+            }
+            tenants = readList(fileTenant, tenantReader, "Tenant");
+            long tenantsRead = sizeOf(tenants);
+
+            // Replaying Journal
+            journalEntries = 0;
+            ArrayList<Rent> journalRent = null;
+            ArrayList<Expense> journalExpenses = null;
+            if (fileJournal.exists() && fileJournal.length() > 0) {
+                if (tenants == null) { tenants = new ArrayList<>(); }
+                journalRent = new ArrayList<>();
+                journalExpenses = new ArrayList<>();
+                replayJournal(tenants, journalRent, journalExpenses);
+            }
+
+            // Tenants do not depend on the ledgers, hand them over while Rent and Expenses are still being read
+            if (tenants != null && !Tenant.loadTenants(tenants)) {
+                MenuHandler.systemMessage("Failed to load the saved Tenants, please see System Administrator.");
+                return false;
+            }
+            tenantsLoaded.complete(null);
+
+            if (shardTasks != null) {
+                ShardedLedger.Ledger ledger = shardTasks.join();
+                rent = ledger.rent();
+                expenses = ledger.expenses();
+            } else if (rentTask == null) {
+                BinaryLedger.Ledger ledger = BinaryLedger.read(fileLedger, tenants);
+                rent = ledger.rent();
+                expenses = ledger.expenses();
             } else {
-                MenuHandler.systemMessage("Tenant save file does not exist or contains no data, ignoring...");
+                rent = await(rentTask);
+                expenses = await(expenseTask);
+            }
+            dictionary = await(dictionaryTask);
+            tenantRows = tenantsRead;
+            dictionaryRows = sizeOf(dictionary);
+            if (journalRent != null) {
+                rent = concat(rent, journalRent);
+                expenses = concat(expenses, journalExpenses);
+            }
+
+            // Rolling Closed Years
+            archive.recover(rent, expenses);
+            if (activeYears > 0) {
+                YearArchive.Roll roll = archive.stage(LocalDate.now().getYear() - activeYears + 1, rent, expenses);
+                if (roll != null) {
+                    rent = roll.rent();
+                    expenses = roll.expenses();
+                    rolled = true;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("An error has occurred, please look at the above Stacktrace for more info.");
+            return false;
+        }
+
+        // The saved data is rejected as a whole, a partial load would be saved over the files
+        if ((rent != null && !Rent.loadRent(rent))
+                || (dictionary != null && !Expense.loadDictionary(dictionary))
+                || (expenses != null && !Expense.loadExpenses(expenses))) {
+            MenuHandler.systemMessage("Failed to load the saved Rent and Expenses, please see System Administrator.");
+            return false;
+        }
+
+        // Save without the rolled rows before they are moved into the archive
+        if (rolled) {
+            if (!writeSnapshot(Tenant.getTenants(), Rent.getRent(), Expense.getExpenses(), Expense.getDictionary())) { return false; }
+            journalEntries = 0;
+            try {
+                archive.commit();
+            } catch (IOException e) {
+                e.printStackTrace();
+                MenuHandler.systemMessage("Failed to archive closed years, please see System Administrator.");
+                return false;
             }
-            // Loading Rent File
-            if (fileRent.exists() && fileRent.length() > 0) {
-                ArrayList<Rent> data = mapper.readValue(fileRent, new TypeReference<>() {});
-                Rent.loadRent(data);
+        } else if (shardTasks != null) {
+            shardTasks.loaded();
+        }
+        return ArchiveCache.open(archive);
+    }
+
+    /**
+     * Appends the rows replayed from the journal to the rows read from the save files.
+     * @param saved Rows read from the save files, may be null or read-only.
+     * @param replayed Rows replayed from the journal.
+     * @return List of both.
+     */
+    private static <T> ArrayList<T> concat(List<T> saved, List<T> replayed) {
+        ArrayList<T> all = new ArrayList<>((saved == null ? 0 : saved.size()) + replayed.size());
+        if (saved != null) { all.addAll(saved); }
+        all.addAll(replayed);
+        return all;
+    }
+
+    /**
+     * Sets how many years are kept in memory, older years are moved into the archive on the next load.
+     * Archiving is off unless this is called, years archived before are still read.
+     * Archived years are read from save_data/archive only when a query, display or report asks for them.
+     * @param years Number of years to keep in memory, counting the current year. 0 to never archive.
+     */
+    public void setArchive(int years) {
+        activeYears = Math.max(0, years);
+    }
+
+    /**
+     * Sets how many years are kept in memory and the directory the archived years are saved in.
+     * Takes effect on the next load.
+     * @param years Number of years to keep in memory, counting the current year. 0 to never archive.
+     * @param directory Directory of the archived years, null for save_data/archive.
+     */
+    public void setArchive(int years, File directory) {
+        archive = new YearArchive(directory == null ? archiveDir : directory);
+        setArchive(years);
+    }
+
+    /**
+     * Reads the category / payee dictionary, a JSON array of Strings in id order.
+     * @return ArrayList of Strings, null if the file does not exist or is empty.
+     */
+    private static ArrayList<String> readDictionary() throws IOException {
+        if (!fileDictionary.exists() || fileDictionary.length() == 0) { return null; }
+        return mapper.readValue(fileDictionary, new TypeReference<>() {});
+    }
+
+    /**
+     * Reads a JSON array from a save file one record at a time.
+     * Only the record being parsed is held in memory besides the resulting list.
+     * @param file Save file to read.
+     * @param reader Reader bound to the type of the records in the file.
+     * @param label Name of the save file used for messages.
+     * @return ArrayList of records, null if the file does not exist or is empty.
+     */
+    static <T> ArrayList<T> readList(File file, ObjectReader reader, String label) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            MenuHandler.systemMessage(label + " save file does not exist or contains no data, ignoring...");
+            return null;
+        }
+        ArrayList<T> data = new ArrayList<>();
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) { return data; }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, file.getName() + " does not contain a list of records.");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                data.add(reader.readValue(parser));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Writes a list to a save file as a JSON array, one record at a time.
+     * The list is written to a temporary file which is synced to disk and then renamed over the save file,
+     * so a crash mid-save leaves the previous save file intact.
+     * @param file Save file to write.
+     * @param data List of records, written as null if there is no list.
+     * @param writer Writer bound to the type of the records.
+     */
+    static void writeList(File file, List<?> data, ObjectWriter writer) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            if (data == null) {
+                generator.writeNull();
             } else {
-                MenuHandler.systemMessage("Rent save file does not exist or contains no data, ignoring...");
+                generator.writeStartArray();
+                for (Object record : data) {
+                    writer.writeValue(generator, record);
+                }
+                generator.writeEndArray();
+            }
+            generator.flush();
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Waits for a background file task to finish.
+     * @param task Task submitted to the IO pool.
+     * @return Result of the task.
+     * @throws IOException If the task failed or the wait was interrupted.
+     */
+    static <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on save files.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) { throw io; }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads every record in the journal and appends it to the matching list.
+     * A partially written last line (e.g. from a crash mid-write) is skipped.
+     * @param tenants Tenants loaded from the save file.
+     * @param rent Rent loaded from the save file.
+     * @param expenses Expenses loaded from the save file.
+     */
+    private void replayJournal(ArrayList<Tenant> tenants, ArrayList<Rent> rent, ArrayList<Expense> expenses) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(fileJournal.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) { continue; }
+                JsonNode entry;
+                try {
+                    entry = mapper.readTree(line);
+                } catch (IOException e) {
+                    MenuHandler.systemMessage("Incomplete entry found in journal.jsonl... Ignoring...");
+                    continue;
+                }
+                JsonNode record = entry.get("record");
+                switch (entry.path("type").asText()) {
+                    case "tenant" -> tenants.add(tenantReader.readValue(record));
+                    case "rent" -> rent.add(rentReader.readValue(record));
+                    case "expense" -> expenses.add(expenseReader.readValue(record));
+                    default -> {
+                        MenuHandler.systemMessage("Unknown entry found in journal.jsonl... Ignoring...");
+                        continue;
+                    }
+                }
+                journalEntries++;
             }
-            // Loading Expense File
-            if (fileExpense.exists() && fileExpense.length() > 0) {
-                ArrayList<Expense> data = mapper.readValue(fileExpense, new TypeReference<>() {});
-                Expense.loadExpenses(data);
+        }
+    }
+
+    /**
+     * Records a new Tenant without rewriting the save files.
+     * @param t Tenant that was added.
+     * @return True if successful, False otherwise.
+     */
+    public boolean journalTenant(Tenant t) { return appendJournal("tenant", t, tenantWriter); }
+
+    /**
+     * Records a new Rent payment without rewriting the save files.
+     * @param r Rent that was added.
+     * @return True if successful, False otherwise.
+     */
+    public boolean journalRent(Rent r) { return appendJournal("rent", r, rentWriter); }
+
+    /**
+     * Records a new Expense without rewriting the save files.
+     * @param e Expense that was added.
+     * @return True if successful, False otherwise.
+     */
+    public boolean journalExpense(Expense e) { return appendJournal("expense", e, expenseWriter); }
+
+    /**
+     * Appends a single record to the end of the journal.
+     * In write-behind mode the record is queued for the background writer instead.
+     * Once the journal grows past JOURNAL_COMPACT_LIMIT entries it is compacted into the save files.
+     * @param type Type of the record ("tenant", "rent" or "expense").
+     * @param record Object to write.
+     * @param writer Writer bound to the type of the record.
+     * @return True if successful (or queued), False otherwise.
+     */
+    private boolean appendJournal(String type, Object record, ObjectWriter writer) {
+        if (record == null) { return false; }
+
+        String line;
+        Metrics.Timer timer = Metrics.start(Metrics.JOURNAL);
+        try {
+            StringWriter entry = new StringWriter(160);
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(entry)) {
+                generator.writeStartObject();
+                generator.writeStringField("type", type);
+                generator.writeFieldName("record");
+                writer.writeValue(generator, record);
+                generator.writeEndObject();
+            }
+            line = entry + "\n";
+            if (writeBehind) {
+                enqueue(line);
             } else {
-                MenuHandler.systemMessage("Expense save file does not exist or contains no data, ignoring...");
+                appendLines(line);
             }
         } catch (IOException e) {
             e.printStackTrace();
-            MenuHandler.systemMessage("An error has occurred, please look at the above Stacktrace for more info.");
+            MenuHandler.systemMessage("Failed to write to the journal, please see System Administrator.");
             return false;
         }
+        timer.stop(1, line.length());
+
+        journalEntries++;
+        if (journalEntries >= JOURNAL_COMPACT_LIMIT) {
+            return saveData();
+        }
         return true;
     }
 
+    /**
+     * Appends lines to the journal and syncs them to disk.
+     * @param lines One or more journal lines, each ending in a newline.
+     */
+    private static void appendLines(String lines) throws IOException {
+        // Check for Directory, create if missing...
+        if (dir.mkdirs()) {
+            MenuHandler.systemMessage("No directory found, created directory...");
+        }
+        try (FileChannel channel = FileChannel.open(fileJournal.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Turns write-behind mode on or off.
+     * While on, journal entries and saves are handed to a single background writer so the caller never waits on disk.
+     * Bursts of changes are coalesced into one write. Turning it off flushes anything still pending.
+     * @param enabled True to write in the background, False to write on the calling thread.
+     */
+    public void setWriteBehind(boolean enabled) {
+        if (enabled && writer == null) {
+            writer = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "FileHandler-Writer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        if (!enabled) { flush(); }
+        writeBehind = enabled;
+    }
+
+    /**
+     * Blocks until every change handed to the background writer is on disk.
+     * Does nothing when write-behind mode has never been turned on.
+     * @return True if every background write since the last flush succeeded, False otherwise.
+     */
+    public boolean flush() {
+        if (writer == null) { return true; }
+        try {
+            await(writer.submit(this::drain));
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to wait for pending saves, please see System Administrator.");
+            return false;
+        }
+        boolean success = !writeFailed;
+        writeFailed = false;
+        return success;
+    }
+
+    /**
+     * Queues a journal line or Snapshot for the background writer.
+     * Only one drain is scheduled at a time, everything queued before it runs is written together.
+     * @param item Journal line or Snapshot.
+     */
+    private void enqueue(Object item) {
+        pending.add(item);
+        if (drainScheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes everything queued for the background writer. Runs on the writer thread only.
+     * Only the newest Snapshot is written, journal lines queued before it are already part of it.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        Snapshot snapshot = null;
+        StringBuilder lines = new StringBuilder();
+        Object item;
+        while ((item = pending.poll()) != null) {
+            if (item instanceof Snapshot s) {
+                snapshot = s;
+                lines.setLength(0);
+            } else {
+                lines.append(item);
+            }
+        }
+
+        if (snapshot != null && !writeSnapshot(snapshot.tenants(), snapshot.rent(), snapshot.expenses(), snapshot.dictionary())) {
+            writeFailed = true;
+        }
+        if (lines.length() > 0) {
+            try {
+                appendLines(lines.toString());
+            } catch (IOException e) {
+                e.printStackTrace();
+                MenuHandler.systemMessage("Failed to write to the journal, please see System Administrator.");
+                writeFailed = true;
+            }
+        }
+    }
+
     /**
      * Saves all data from memory.
+     * The three save files are written at the same time, one record at a time.
+     * Compacts the journal, all journaled records are now part of the save files.
+     * In write-behind mode a snapshot of the data is handed to the background writer, see flush().
+     * Waits for a background load first, so a half loaded list never replaces a save file,
+     * and saves nothing if that load failed.
      * Takes advantage of Jackson Core for JSON Building.
-     * @return True if successful, False otherwise.
+     * @return True if successful (or queued), False otherwise.
      */
     public boolean saveData() {
+        if (!awaitData()) {
+            MenuHandler.systemMessage("Saved data failed to load, nothing was saved, please see System Administrator.");
+            return false;
+        }
+        if (writeBehind) {
+            enqueue(new Snapshot(Tenant.getTenants(), Rent.getRent(), Expense.getExpenses(), Expense.getDictionary()));
+            journalEntries = 0;
+            return true;
+        }
+        if (!writeSnapshot(Tenant.getTenants(), Rent.getRent(), Expense.getExpenses(), Expense.getDictionary())) { return false; }
+        journalEntries = 0;
+        return true;
+    }
+
+    /**
+     * Writes the given lists to the save files and compacts the journal.
+     * @param tenants Tenants to save.
+     * @param rent Rent to save.
+     * @param expenses Expenses to save.
+     * @param dictionary Category / payee dictionary to save.
+     * @return True if successful, False otherwise.
+     */
+    private boolean writeSnapshot(List<Tenant> tenants, List<Rent> rent, List<Expense> expenses, List<String> dictionary) {
+        Metrics.Timer timer = Metrics.start(Metrics.SAVE);
 
         // Check for Directory, create if missing...
         if (dir.mkdirs()) {
@@ -94,21 +663,126 @@ public class FileHandler {
             if (fileTenant.createNewFile()) {
                 MenuHandler.systemMessage("No tenant save file found, created file...");
             }
-            if (fileRent.createNewFile()) {
-                MenuHandler.systemMessage("No rent save file found, created file...");
+
+            // Save Files
+            List<Future<Object>> tasks;
+            if (binarySnapshots) {
+                tasks = List.of(
+                        ioPool.submit(() -> { writeList(fileTenant, tenants, tenantWriter); return null; }),
+                        ioPool.submit(() -> { BinaryLedger.write(fileLedger, tenants, rent, expenses); return null; }),
+                        ioPool.submit(() -> { writeList(fileDictionary, dictionary, recordWriter); return null; }));
+            } else if (sharded) {
+                // Tenants and the dictionary are only added to in memory, so they are unchanged while their count is
+                tasks = new ArrayList<>();
+                if (sizeOf(tenants) != tenantRows || fileTenant.length() == 0) {
+                    tasks.add(ioPool.submit(() -> { writeList(fileTenant, tenants, tenantWriter); return null; }));
+                }
+                if (sizeOf(dictionary) != dictionaryRows || fileDictionary.length() == 0) {
+                    tasks.add(ioPool.submit(() -> { writeList(fileDictionary, dictionary, recordWriter); return null; }));
+                }
+                shards.write(rent, expenses, ioPool);
+            } else {
+                if (fileRent.createNewFile()) {
+                    MenuHandler.systemMessage("No rent save file found, created file...");
+                }
+                if (fileExpense.createNewFile()) {
+                    MenuHandler.systemMessage("No expense save file found, created file...");
+                }
+                tasks = List.of(
+                        ioPool.submit(() -> { writeList(fileTenant, tenants, tenantWriter); return null; }),
+                        ioPool.submit(() -> { writeList(fileRent, rent, rentWriter); return null; }),
+                        ioPool.submit(() -> { writeList(fileExpense, expenses, expenseWriter); return null; }),
+                        ioPool.submit(() -> { writeList(fileDictionary, dictionary, recordWriter); return null; }));
             }
-            if (fileExpense.createNewFile()) {
-                MenuHandler.systemMessage("No expense save file found, created file...");
+            IOException failure = null;
+            for (Future<Object> task : tasks) {
+                try {
+                    await(task);
+                } catch (IOException e) {
+                    failure = e;
+                }
             }
+            if (failure != null) { throw failure; }
 
-            // Save Files
-            mapper.writeValue(fileTenant, Tenant.getTenants());
-            mapper.writeValue(fileRent, Rent.getRent());
-            mapper.writeValue(fileExpense, Expense.getExpenses());
+            // Remove the other format so it is not loaded in place of this save
+            if (binarySnapshots || sharded) {
+                Files.deleteIfExists(fileRent.toPath());
+                Files.deleteIfExists(fileExpense.toPath());
+            }
+            if (!binarySnapshots) {
+                Files.deleteIfExists(fileLedger.toPath());
+            }
+            if (binarySnapshots || !sharded) {
+                shards.delete();
+            }
+
+            // Compact Journal
+            Files.deleteIfExists(fileJournal.toPath());
+            tenantRows = sizeOf(tenants);
+            dictionaryRows = sizeOf(dictionary);
 
         } catch (IOException e) {
             e.printStackTrace();
             MenuHandler.systemMessage("Failed to load data files, please see System Administrator.");
+            tenantRows = -1;
+            dictionaryRows = -1;
+            return false;
+        }
+        timer.stop(sizeOf(tenants) + sizeOf(rent) + sizeOf(expenses),
+                bytesOf(fileTenant, fileRent, fileExpense, fileLedger, fileDictionary) + shards.bytes());
+        return true;
+    }
+
+    private static long bytesOf(File... files) {
+        long bytes = 0;
+        for (File f : files) {
+            bytes += f.length();
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    /**
+     * Turns binary snapshots on or off.
+     * While on, saves write Rent and Expenses to ledger.bin instead of rent.json and expense.json.
+     * Saving with binary snapshots off converts the save back to JSON.
+     * @param enabled True to save Rent and Expenses in the binary format, False for JSON.
+     */
+    public void setBinarySnapshots(boolean enabled) {
+        binarySnapshots = enabled;
+    }
+
+    /**
+     * Turns sharded saves on or off.
+     * While on, saves write Rent and Expenses to one directory per month under save_data/shards
+     * instead of rent.json and expense.json, and only rewrite the months that changed. Binary snapshots take precedence.
+     * Saving with sharded saves off converts the save back to a single file.
+     * @param enabled True to save Rent and Expenses in monthly shards, False for single files.
+     */
+    public void setSharded(boolean enabled) {
+        sharded = enabled;
+    }
+
+    /**
+     * Exports all data in memory as JSON save files, regardless of the save format in use.
+     * @param directory Directory to write tenant.json, rent.json, expense.json and dictionary.json to.
+     * @return True if successful, False otherwise.
+     */
+    public boolean exportJson(File directory) {
+        if (directory.mkdirs()) {
+            MenuHandler.systemMessage("No export directory found, created directory...");
+        }
+        try {
+            writeList(new File(directory, fileTenant.getName()), Tenant.getTenants(), tenantWriter);
+            writeList(new File(directory, fileRent.getName()), Rent.getRent(), rentWriter);
+            writeList(new File(directory, fileExpense.getName()), Expense.getExpenses(), expenseWriter);
+            writeList(new File(directory, fileDictionary.getName()), Expense.getDictionary(), recordWriter);
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to export data files, please see System Administrator.");
             return false;
         }
         return true;
@@ -1,12 +1,21 @@
 package handlers;
 import data.AnnualReport;
+import data.ArchiveCache;
+import data.ArrearsReport;
 import data.Expense;
 import data.Rent;
 import data.Tenant;
 import org.apache.commons.codec.digest.DigestUtils;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Controls all menus and is the main execution control of the program.
@@ -22,6 +31,7 @@ public class MenuHandler {
                     Please select an option:
                     i) Input Data
                     d) Display Reports
+                    s) System Stats
                     q) Quit
                     """;
     private static final String INPUT_PROMPT =
@@ -31,6 +41,7 @@ public class MenuHandler {
                      t) Record Tenant Information
                      r) Record Rent Payment
                      e) Record Expense
+                     c) Import Rent / Expenses from CSV
                      q) Return to Main Menu
                      """;
     private static final String DISPLAY_REPORTS_PROMPT =
@@ -41,6 +52,8 @@ public class MenuHandler {
                      e) Expense Records
                      r) Rent Records
                      a) Annual Report
+                     b) Breakdown Report (by month, apartment and category)
+                     u) Arrears Report (missing and partial rent)
                      q) Return to Main Menu
                     """;
     private static final String INPUT_TENANT =
@@ -94,6 +107,32 @@ public class MenuHandler {
                      Press [ENTER] to continue and create the new rent entry.
                     """;
 
+    private static final String IMPORT_CSV =
+            """
+                     CSV Import 
+                     Rent columns:    apartment number (or tenant id), year, month, amount
+                     Expense columns: date (MM/dd/yyyy), category, payee, amount
+                     A first line of column names is skipped.
+                     Rent is associated to the current tenant of the apartment.
+                     Duplicate rent payments are skipped.
+                    
+                     r) Import Rent
+                     e) Import Expenses
+                     Input anything else to return to the previous menu.
+                    """;
+
+    private static final String FILTER_NOTICE =
+            """
+                     Record Filters 
+                     Press [ENTER] to skip a filter.
+                    """;
+    private static final String NEXT_PAGE = "-- %d shown. Press [ENTER] for the next page or input \"q\" to stop --";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("M/d/yyyy");
+
+    // Shared by every prompt, a new Scanner per prompt loses buffered input when input is piped
+    private final Scanner scan = new Scanner(System.in);
+
     private MenuHandler() {}
 
     /**
@@ -114,7 +153,6 @@ public class MenuHandler {
      */
     public void promptLogin() {
         DigestUtils sha = new DigestUtils("SHA3-256");
-        Scanner scan = new Scanner(System.in);
         String username, password;
 
         // Fetch Login Details
@@ -144,7 +182,6 @@ public class MenuHandler {
      * Prompt Main Menu and take user input.
      */
     public void promptMainMenu() {
-        Scanner scan = new Scanner(System.in);
         String input = "";
 
         while (!input.equalsIgnoreCase("q")) {
@@ -155,6 +192,7 @@ public class MenuHandler {
             switch(input) {
                 case "i" -> promptInputMenu();
                 case "d" -> promptReportMenu();
+                case "s" -> displaySystemStats();
                 case "q" -> {}
                 default -> MenuHandler.systemMessage("Your input is invalid, please try again...");
             }
@@ -167,7 +205,6 @@ public class MenuHandler {
      * Prompt Input Menus and take user input.
      */
     public void promptInputMenu() {
-        Scanner scan = new Scanner(System.in);
         String input = "";
         boolean loop = true;
 
@@ -180,18 +217,16 @@ public class MenuHandler {
                 case "t" -> promptInputTenant();
                 case "r" -> promptInputRent();
                 case "e" -> promptInputExpense();
+                case "c" -> promptImportCsv();
                 case "q" -> loop = false;
                 default -> MenuHandler.systemMessage("Your input is invalid, please try again...");
             }
-
-            FileHandler.getInstance().saveData();
         }
 
         MenuHandler.systemMessage("Returning to main menu...");
     }
 
     public void promptReportMenu() {
-        Scanner scan = new Scanner(System.in);
         String input = "";
         boolean loop = true;
 
@@ -205,6 +240,8 @@ public class MenuHandler {
                 case "e" -> displayExpenses();
                 case "r" -> displayRent();
                 case "a" -> displayAnnualReport();
+                case "b" -> displayBreakdownReport();
+                case "u" -> displayArrearsReport();
                 case "q" -> loop = false;
                 default -> MenuHandler.systemMessage("Your input is invalid, please try again...");
             }
@@ -214,65 +251,165 @@ public class MenuHandler {
     }
 
     public void displayTenants() {
-        List<Tenant> tenants = Tenant.getTenants();
-
-        // If there are no tenants
-        if (tenants == null || tenants.isEmpty()) {
-            MenuHandler.systemMessage("There are no Tenants to display...");
-            return;
-        }
-
-        // Build tenants string to print out
-        StringBuilder display = new StringBuilder("Display Tenants \n");
-        for (int i = tenants.size()-1; i >= 0; i--) {
-            display.append(String.format("%s\n", tenants.get(i)));
-        }
-        display.append("");
+        System.out.println(FILTER_NOTICE);
+        System.out.print("Apartment number: ");
+        Integer apt = getOptionalPositiveInt();
+        System.out.print("Name contains: ");
+        String name = scan.nextLine();
+        displayTenants(new RecordFilter(null, null, apt, name), promptPageSize());
+    }
 
-        System.out.println(display);
+    /**
+     * Prints the Tenants matching the filter, most recent first.
+     * @param filter Tenants to show.
+     * @param pageSize Rows per page, 0 to print every row without pausing.
+     */
+    public void displayTenants(RecordFilter filter, int pageSize) {
+        FileHandler.getInstance().awaitTenants();
+        displayPaged("Display Tenants ", Tenant.getTenants(), filter::matches, pageSize, "Tenants");
     }
 
     public void displayExpenses() {
-        List<Expense> expenses = Expense.getExpenses();
+        System.out.println(FILTER_NOTICE);
+        System.out.print("From date (MM/dd/yyyy): ");
+        LocalDate from = getOptionalDate();
+        System.out.print("To date (MM/dd/yyyy): ");
+        LocalDate to = getOptionalDate();
+        System.out.print("Category or payee contains: ");
+        String text = scan.nextLine();
+        displayExpenses(new RecordFilter(from, to, null, text), promptPageSize());
+    }
 
-        // If there are no expenses
-        if (expenses == null || expenses.isEmpty()) {
-            MenuHandler.systemMessage("There are no Expenses to display...");
-            return;
-        }
+    /**
+     * Prints the Expenses matching the filter, most recent first.
+     * A date range is looked up through the date index, most recent means latest date.
+     * Archived years are only shown when a date range is given.
+     * @param filter Expenses to show.
+     * @param pageSize Rows per page, 0 to print every row without pausing.
+     */
+    public void displayExpenses(RecordFilter filter, int pageSize) {
+        FileHandler.getInstance().awaitData();
+        boolean dated = filter.from() != null || filter.to() != null;
+        List<Expense> expenses = dated ? Expense.between(filter.from(), filter.to()) : Expense.getExpenses();
+        displayPaged("Display Expenses ", expenses, filter::matches, pageSize, "Expenses");
+        if (!dated) { archiveNotice(); }
+    }
 
-        // Build expenses string to print out
-        StringBuilder display = new StringBuilder("Display Expenses \n");
-        for (int i = expenses.size()-1; i >= 0; i--) {
-            display.append(String.format("%s\n", expenses.get(i)));
-        }
-        display.append("");
+    public void displayRent() {
+        System.out.println(FILTER_NOTICE);
+        System.out.print("From date (MM/dd/yyyy): ");
+        LocalDate from = getOptionalDate();
+        System.out.print("To date (MM/dd/yyyy): ");
+        LocalDate to = getOptionalDate();
+        System.out.print("Apartment number: ");
+        Integer apt = getOptionalPositiveInt();
+        displayRent(new RecordFilter(from, to, apt, null), promptPageSize());
+    }
 
-        System.out.println(display);
+    /**
+     * Prints the Rent Payments matching the filter, most recent first.
+     * A date range is looked up through the date index, most recent means latest date.
+     * Archived years are only shown when a date range is given.
+     * @param filter Rent to show.
+     * @param pageSize Rows per page, 0 to print every row without pausing.
+     */
+    public void displayRent(RecordFilter filter, int pageSize) {
+        FileHandler.getInstance().awaitData();
+        boolean dated = filter.from() != null || filter.to() != null;
+        List<Rent> rent = dated ? Rent.between(filter.from(), filter.to()) : Rent.getRent();
+        displayPaged("Display Rent ", rent, filter::matches, pageSize, "Rent Payments");
+        if (!dated) { archiveNotice(); }
     }
 
-    public void displayRent() {
-        List<Rent> rent = Rent.getRent();
+    /**
+     * Lets the user know archived years were left out of a display without a date range.
+     */
+    private static void archiveNotice() {
+        SortedSet<Integer> years = ArchiveCache.getYears();
+        if (years.isEmpty()) { return; }
+        MenuHandler.systemMessage("Years " + years.first() + " - " + years.last() + " are archived, filter by date to display them.");
+    }
 
-        // If there are no rent records
-        if (rent == null || rent.isEmpty()) {
-            MenuHandler.systemMessage("There are no Rent Payments to display...");
+    /**
+     * Streams records to the console most recent first, one page at a time.
+     * Rows are written straight to a buffered writer that is flushed once per page,
+     * nothing is built up in memory so the first page shows as soon as it is found.
+     * @param title Title printed above the records.
+     * @param records Records to display, oldest first.
+     * @param filter Records to show.
+     * @param pageSize Rows per page, 0 to print every row without pausing.
+     * @param name Name of the records for messages.
+     */
+    private <T> void displayPaged(String title, List<T> records, Predicate<T> filter, int pageSize, String name) {
+        // If there are no records
+        if (records == null || records.isEmpty()) {
+            MenuHandler.systemMessage("There are no " + name + " to display...");
             return;
         }
 
-        // Build rent records string to print out
-        StringBuilder display = new StringBuilder("Display Rent \n");
-        for (int i = rent.size()-1; i >= 0; i--) {
-            display.append(String.format("%s\n", rent.get(i)));
+        // System.out is only flushed, never closed
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        out.println(title);
+        int shown = 0;
+        for (int i = records.size()-1; i >= 0; i--) {
+            T record = records.get(i);
+            if (!filter.test(record)) { continue; }
+            out.println(record);
+            shown++;
+
+            // Wait for the user at the end of each page
+            if (pageSize > 0 && shown % pageSize == 0 && i > 0) {
+                out.printf(NEXT_PAGE + "%n", shown);
+                out.flush();
+                if (scan.nextLine().equalsIgnoreCase("q")) { break; }
+            }
         }
-        display.append("");
+        out.println();
+        out.flush();
+        MenuHandler.systemMessage(shown == 0 ? "No " + name + " match the filters..." : shown + " " + name + " shown.");
+    }
 
-        System.out.println(display);
+    /**
+     * Prompts for the number of rows per page.
+     * @return Rows per page, 0 for no paging.
+     */
+    private int promptPageSize() {
+        System.out.print("Rows per page (0 for all, [ENTER] for " + DEFAULT_PAGE_SIZE + "): ");
+        Integer pageSize = getOptionalPositiveInt();
+        return pageSize == null ? DEFAULT_PAGE_SIZE : pageSize;
     }
 
     public void displayAnnualReport() {
         System.out.print("Enter the year for the report: ");
-        System.out.println(AnnualReport.generateReport(getPositiveInt()));
+        int year = getPositiveInt();
+        FileHandler.getInstance().awaitData();
+        System.out.println(AnnualReport.generateReport(year));
+    }
+
+    public void displayBreakdownReport() {
+        System.out.print("Enter the first year of the report: ");
+        int fromYear = getPositiveInt();
+        System.out.print("Enter the last year of the report: ");
+        int toYear = getIntRange(fromYear, fromYear + 99);
+        FileHandler.getInstance().awaitData();
+        System.out.println(AnnualReport.generateBreakdownReport(fromYear, toYear));
+    }
+
+    public void displayArrearsReport() {
+        System.out.print("Enter the first year of the report: ");
+        int fromYear = getPositiveInt();
+        System.out.print("Enter the last year of the report: ");
+        int toYear = getIntRange(fromYear, fromYear + 99);
+        FileHandler.getInstance().awaitData();
+        System.out.println(ArrearsReport.generateReport(fromYear, toYear));
+    }
+
+    /**
+     * Prints the timings, counters and store sizes collected since the program started.
+     * The same numbers are published through JMX and Flight Recorder, see Metrics.
+     */
+    public void displaySystemStats() {
+        System.out.println(Metrics.generateReport());
     }
 
     /**
@@ -286,7 +423,6 @@ public class MenuHandler {
      * Prompts tenant input
      */
     public void promptInputTenant() {
-        Scanner scan = new Scanner(System.in);
         String name;
         int apt;
 
@@ -300,32 +436,25 @@ public class MenuHandler {
         System.out.print("Enter tenant's apartment number: ");
         apt = getPositiveInt();
 
-        // Search for possible conflict
-        List<Tenant> tenantList = Tenant.getTenants();
-        if (tenantList != null && !tenantList.isEmpty()) {
-            Tenant t = null;
-            // Search for the most recent tenant with a conflict
-            for (int i = tenantList.size() - 1; i >= 0; i--) {
-                if (apt == tenantList.get(i).getAptNum()) {
-                    t = tenantList.get(i);
-                    break;
-                }
-            }
-            // If there is a conflict, display warning and take input for quit or continue
-            if (t != null) {
-                System.out.printf(RECENT_TENANT + "\n", t);
-                if (scan.nextLine().equalsIgnoreCase("q")) { return; }
-            }
+        // Search for the most recent tenant with a conflict, changes wait for the whole load
+        FileHandler.getInstance().awaitData();
+        Tenant t = Tenant.getCurrentTenant(apt);
+        // If there is a conflict, display warning and take input for quit or continue
+        if (t != null) {
+            System.out.printf(RECENT_TENANT + "\n", t);
+            if (scan.nextLine().equalsIgnoreCase("q")) { return; }
         }
-        MenuHandler.systemMessage("Added Tenant: " + Tenant.addTenant(name, apt));
+        Tenant added = Tenant.addTenant(name, apt);
+        FileHandler.getInstance().journalTenant(added);
+        MenuHandler.systemMessage("Added Tenant: " + added);
     }
 
     /**
      * Prompts rent menu
      */
     public void promptInputRent() {
+        FileHandler.getInstance().awaitData();
         List<Tenant> tenantList = Tenant.getTenants();
-        Scanner scan = new Scanner(System.in);
         int apt, year, month;
         double payment;
 
@@ -350,30 +479,25 @@ public class MenuHandler {
         payment = getPositiveDouble();
 
         // Search for the most recent tenant with matching apartment number
-        Tenant t = null;
-        for (int i = tenantList.size() - 1; i >= 0; i--) {
-            if (apt == tenantList.get(i).getAptNum()) {
-                t = tenantList.get(i);
-                break;
-            }
-        }
+        Tenant t = Tenant.getCurrentTenant(apt);
 
         // Confirm rent association
-        if (t != null) {
-            // Duplicate check
-            if (Rent.getRent() != null) {
-                for (Rent r : Rent.getRent()) {
-                    if (r.checkDuplicate(t, LocalDate.of(year, month, 1), payment)) {
-                        MenuHandler.systemMessage("This is a duplicate entry, ignoring...");
-                    }
-                }
-            }
+        if (t == null) {
+            MenuHandler.systemMessage("There is no tenant to associate to.");
+            return;
+        }
 
-            System.out.printf(NEW_RENT + "\n", t);
-            if (scan.nextLine().equalsIgnoreCase("q")) { return; }
-            MenuHandler.systemMessage("Added Rent: " + Rent.addRent(t, year, month, payment));
+        // Duplicate check
+        if (Rent.isDuplicate(t, year, month, payment)) {
+            MenuHandler.systemMessage("This is a duplicate entry, ignoring...");
+            return;
         }
-        MenuHandler.systemMessage("There is no tenant to associate to.");
+
+        System.out.printf(NEW_RENT + "\n", t);
+        if (scan.nextLine().equalsIgnoreCase("q")) { return; }
+        Rent added = Rent.addRentIfAbsent(t, year, month, payment);
+        FileHandler.getInstance().journalRent(added);
+        MenuHandler.systemMessage("Added Rent: " + added);
     }
 
     /**
@@ -381,7 +505,6 @@ public class MenuHandler {
      * TODO: Look over and resolve any issues.
      */
     public void promptInputExpense() {
-        Scanner scan = new Scanner(System.in);
 
         // Display Rent notice and cancel
         System.out.println(INPUT_EXPENSE);
@@ -405,30 +528,54 @@ public class MenuHandler {
         System.out.print("Enter amount: ");
         double amount = getPositiveDouble();
 
-        Expense.addExpense(year, month, day, category, payee, amount);
+        FileHandler.getInstance().awaitData();
+        FileHandler.getInstance().journalExpense(Expense.addExpense(year, month, day, category, payee, amount));
+    }
+
+    /**
+     * Prompts CSV import
+     */
+    public void promptImportCsv() {
+
+        System.out.println(IMPORT_CSV);
+        String type = scan.nextLine().toLowerCase();
+        if (!type.equals("r") && !type.equals("e")) { return; }
+
+        System.out.print("Enter the path of the CSV file: ");
+        File file = new File(scan.nextLine().trim());
+        if (!file.isFile()) {
+            MenuHandler.systemMessage("File not found: " + file.getPath());
+            return;
+        }
+
+        FileHandler.getInstance().awaitData();
+        if (type.equals("r")) {
+            CsvImporter.importRent(file);
+        } else {
+            CsvImporter.importExpenses(file);
+        }
     }
 
     /**
      * Takes in an input, validates input for correct range and returns it
+     * Reads a whole line so the rest of the line is not left for the next prompt.
      * @param low int
      * @param high int
      * @return a valid int that fits in the range of low and high
      */
     public int getIntRange( int low, int high ) {
-        Scanner in = new Scanner( System.in );
         int input = 0;
         boolean valid = false;
         while( !valid ) {
-            if( in.hasNextInt() ) {
-                input = in.nextInt();
+            try {
+                input = Integer.parseInt( scan.nextLine().trim() );
                 if( input <= high && input >= low ) {
                     valid = true;
                 } else {
                     System.out.println( "Invalid number! Reenter your input: " );
 
                 }
-            } else {
-                in.next();
+            } catch( NumberFormatException e ) {
                 System.out.println( "Invalid Input. Reenter your input: " );
             }
         }
@@ -440,43 +587,73 @@ public class MenuHandler {
      * @return positive int
      */
     public int getPositiveInt( ) {
-        Scanner in = new Scanner( System.in );
         int input = 0;
         boolean valid = false;
         while( !valid ) {
-            if( in.hasNextInt() ) {
-                input = in.nextInt();
+            try {
+                input = Integer.parseInt( scan.nextLine().trim() );
                 if( input >= 0 ) {
                     valid = true;
                 } else {
                     System.out.println( "Reenter a positive integer: " );
                 }
-            } else {
-                in.next();
+            } catch( NumberFormatException e ) {
                 System.out.println( "Invalid Input. Reenter a positive integer: " );
             }
         }
         return input;
     }
 
+    /**
+     * Takes in an optional input, validates input for positive int and returns it
+     * @return positive int, null if the input is blank
+     */
+    public Integer getOptionalPositiveInt( ) {
+        while( true ) {
+            String line = scan.nextLine().trim();
+            if( line.isEmpty() ) { return null; }
+            try {
+                int input = Integer.parseInt( line );
+                if( input >= 0 ) { return input; }
+                System.out.println( "Reenter a positive integer: " );
+            } catch( NumberFormatException e ) {
+                System.out.println( "Invalid Input. Reenter a positive integer: " );
+            }
+        }
+    }
+
+    /**
+     * Takes in an optional input, validates input for a MM/dd/yyyy date and returns it
+     * @return date, null if the input is blank
+     */
+    public LocalDate getOptionalDate( ) {
+        while( true ) {
+            String line = scan.nextLine().trim();
+            if( line.isEmpty() ) { return null; }
+            try {
+                return LocalDate.parse( line, DATE );
+            } catch( DateTimeParseException e ) {
+                System.out.println( "Invalid Date. Reenter as MM/dd/yyyy: " );
+            }
+        }
+    }
+
     /**
      * Takes in an input, validates input for positive double and returns it
      * @return positive double
      */
     public double getPositiveDouble( ) {
-        Scanner in = new Scanner( System.in );
         double input = 0.0;
         boolean valid = false;
         while( !valid ) {
-            if( in.hasNextDouble() ) {
-                input = in.nextDouble();
+            try {
+                input = Double.parseDouble( scan.nextLine().trim() );
                 if( input >= 0 ) {
                     valid = true;
                 } else {
                     System.out.println( "Reenter a positive number: " );
                 }
-            } else {
-                in.next();
+            } catch( NumberFormatException e ) {
                 System.out.println( "Invalid Input. Reenter a positive number: " );
             }
         }
@@ -0,0 +1,293 @@
+package handlers;
+
+import data.ArchiveCache;
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timers and counters for the load, save, input and report paths, and the size of each store.
+ * Every timed operation is also recorded as a "tera.Operation" Flight Recorder event, and the stores
+ * as a periodic "tera.Stores" event. register() publishes everything through JMX as "tera:type=Metrics".
+ *
+ * Timers and counters only add to LongAdders, they are cheap enough for the hot paths.
+ */
+public final class Metrics {
+
+    // Operations
+    public static final String LOAD = "load", SAVE = "save", JOURNAL = "journal", IMPORT = "import",
+            ARCHIVE_READ = "archive read", ANNUAL_REPORT = "annual report", BREAKDOWN_REPORT = "breakdown report",
+            ARREARS_REPORT = "arrears report";
+
+    // Counters
+    public static final String TENANT_LOOKUP = "tenant lookup", RANGE_QUERY = "range query", DUPLICATE_CHECK = "duplicate check";
+
+    private static final String STATS_OUT =
+            """
+                     System Stats
+                    """;
+    private static final ConcurrentHashMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static boolean registered = false;
+
+    private Metrics() {}
+
+    /**
+     * Counts how often something happens. Keep the Counter in a static field on hot paths.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {}
+
+        public void increment() { count.increment(); }
+        public long get() { return count.sum(); }
+    }
+
+    /**
+     * Totals of one timed operation.
+     */
+    private static final class Operation {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder records = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile long lastNanos;
+
+        private void record(long duration, long recordCount, long byteCount) {
+            count.increment();
+            nanos.add(duration);
+            records.add(recordCount);
+            bytes.add(byteCount);
+            maxNanos.accumulateAndGet(duration, Math::max);
+            lastNanos = duration;
+        }
+
+        private double averageMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : nanos.sum() / 1e6 / n;
+        }
+    }
+
+    /**
+     * Times one run of an operation, from start() to stop().
+     */
+    public static final class Timer {
+        private final String name;
+        private final long start;
+        private final OperationEvent event = new OperationEvent();
+
+        private Timer(String name) {
+            this.name = name;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Records the run without records or bytes.
+         */
+        public void stop() {
+            stop(0, 0);
+        }
+
+        /**
+         * Records the run.
+         * @param records Records read or written.
+         * @param bytes Bytes read or written.
+         */
+        public void stop(long records, long bytes) {
+            long duration = System.nanoTime() - start;
+            operations.computeIfAbsent(name, n -> new Operation()).record(duration, records, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = name;
+                event.records = records;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("tera.Operation")
+    @Label("Operation")
+    @Category("TERA")
+    @Description("A load, save, journal entry, import, archive read or report.")
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Records")
+        long records;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("tera.Stores")
+    @Label("Stores")
+    @Category("TERA")
+    @Description("Records held in memory and their estimated heap use.")
+    @Period("10 s")
+    static final class StoreEvent extends Event {
+        @Label("Tenants")
+        long tenants;
+        @Label("Rent")
+        long rent;
+        @Label("Expenses")
+        long expenses;
+        @Label("Tenant Heap")
+        @DataAmount
+        long tenantHeap;
+        @Label("Rent Heap")
+        @DataAmount
+        long rentHeap;
+        @Label("Expense Heap")
+        @DataAmount
+        long expenseHeap;
+        @Label("Archive Heap")
+        @DataAmount
+        long archiveHeap;
+    }
+
+    /**
+     * Starts timing an operation.
+     * @param operation Name of the operation, one of the constants above.
+     * @return Timer to stop once the operation is done.
+     */
+    public static Timer start(String operation) {
+        return new Timer(operation);
+    }
+
+    /**
+     * Returns the Counter with a name, creating it on first use.
+     * @param name Name of the counter, one of the constants above.
+     * @return Counter
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Publishes the metrics through JMX and starts the periodic Flight Recorder event.
+     * Calling it more than once does nothing.
+     */
+    public static synchronized void register() {
+        if (registered) { return; }
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("tera:type=Metrics"));
+        } catch (JMException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to publish metrics through JMX, please see System Administrator.");
+        }
+        FlightRecorder.addPeriodicEvent(StoreEvent.class, () -> {
+            StoreEvent event = new StoreEvent();
+            event.tenants = size(Tenant.getTenants());
+            event.rent = size(Rent.getRent());
+            event.expenses = size(Expense.getExpenses());
+            event.tenantHeap = Tenant.getHeapEstimate();
+            event.rentHeap = Rent.getHeapEstimate();
+            event.expenseHeap = Expense.getHeapEstimate();
+            event.archiveHeap = ArchiveCache.getHeapEstimate();
+            event.commit();
+        });
+    }
+
+    /**
+     * Formats every operation, counter and store.
+     * @return String of report
+     */
+    public static String generateReport() {
+        StringBuilder report = new StringBuilder(STATS_OUT);
+
+        report.append(String.format(" %-18s %8s %10s %10s %10s %10s %12s%n", "Operation", "Count", "Avg ms", "Max ms", "Last ms", "Records", "Bytes"));
+        new TreeMap<>(operations).forEach((name, op) -> report.append(String.format(" %-18s %8d %10.2f %10.2f %10.2f %10d %12d%n",
+                name, op.count.sum(), op.averageMillis(), op.maxNanos.get() / 1e6, op.lastNanos / 1e6, op.records.sum(), op.bytes.sum())));
+
+        report.append(String.format("%n %-18s %8s%n", "Counter", "Count"));
+        new TreeMap<>(counters).forEach((name, c) -> report.append(String.format(" %-18s %8d%n", name, c.get())));
+
+        report.append(String.format("%n %-18s %8s %10s%n", "Store", "Records", "Heap KB"));
+        Map<String, Long> sizes = storeSizes();
+        storeHeapEstimates().forEach((name, bytes) -> report.append(String.format(" %-18s %8s %10d%n",
+                name, sizes.containsKey(name) ? sizes.get(name) : "-", bytes / 1024)));
+
+        Runtime runtime = Runtime.getRuntime();
+        report.append(String.format("%n JVM heap used %d MB of %d MB%n",
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20, runtime.maxMemory() >> 20));
+        return report.toString();
+    }
+
+    private static Map<String, Long> storeSizes() {
+        LinkedHashMap<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put("tenants", size(Tenant.getTenants()));
+        sizes.put("rent", size(Rent.getRent()));
+        sizes.put("expenses", size(Expense.getExpenses()));
+        sizes.put("archived years", (long) ArchiveCache.getYears().size());
+        return sizes;
+    }
+
+    private static Map<String, Long> storeHeapEstimates() {
+        LinkedHashMap<String, Long> heap = new LinkedHashMap<>();
+        heap.put("tenants", Tenant.getHeapEstimate());
+        heap.put("rent", Rent.getHeapEstimate());
+        heap.put("expenses", Expense.getHeapEstimate());
+        heap.put("archive cache", ArchiveCache.getHeapEstimate());
+        return heap;
+    }
+
+    private static long size(List<?> list) {
+        return list == null ? 0 : list.size();
+    }
+
+    private static <T> Map<String, Long> longs(Map<String, T> source, ToLongFunction<T> value) {
+        TreeMap<String, Long> result = new TreeMap<>();
+        source.forEach((name, v) -> result.put(name, value.applyAsLong(v)));
+        return result;
+    }
+
+    private static <T> Map<String, Double> doubles(Map<String, T> source, ToDoubleFunction<T> value) {
+        TreeMap<String, Double> result = new TreeMap<>();
+        source.forEach((name, v) -> result.put(name, value.applyAsDouble(v)));
+        return result;
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override public Map<String, Long> getOperationCounts() { return longs(operations, op -> op.count.sum()); }
+        @Override public Map<String, Double> getAverageMillis() { return doubles(operations, Operation::averageMillis); }
+        @Override public Map<String, Double> getMaxMillis() { return doubles(operations, op -> op.maxNanos.get() / 1e6); }
+        @Override public Map<String, Long> getRecords() { return longs(operations, op -> op.records.sum()); }
+        @Override public Map<String, Long> getBytes() { return longs(operations, op -> op.bytes.sum()); }
+        @Override public Map<String, Long> getCounters() { return longs(counters, Counter::get); }
+        @Override public Map<String, Long> getStoreSizes() { return storeSizes(); }
+        @Override public Map<String, Long> getStoreHeapEstimates() { return storeHeapEstimates(); }
+
+        @Override
+        public void reset() {
+            operations.clear();
+            counters.values().forEach(c -> c.count.reset());
+        }
+    }
+
+}
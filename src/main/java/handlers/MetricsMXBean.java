@@ -0,0 +1,56 @@
+package handlers;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics collected by Metrics, registered as "tera:type=Metrics".
+ * Maps are keyed by operation, counter or store name.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return Number of times each operation ran.
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return Average duration of each operation in milliseconds.
+     */
+    Map<String, Double> getAverageMillis();
+
+    /**
+     * @return Longest duration of each operation in milliseconds.
+     */
+    Map<String, Double> getMaxMillis();
+
+    /**
+     * @return Records read or written by each operation, in total.
+     */
+    Map<String, Long> getRecords();
+
+    /**
+     * @return Bytes read or written by each operation, in total.
+     */
+    Map<String, Long> getBytes();
+
+    /**
+     * @return Value of each counter, e.g. lookups.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return Number of records held by each store.
+     */
+    Map<String, Long> getStoreSizes();
+
+    /**
+     * @return Estimated heap used by each store, in bytes.
+     */
+    Map<String, Long> getStoreHeapEstimates();
+
+    /**
+     * Sets every operation and counter back to 0.
+     */
+    void reset();
+
+}
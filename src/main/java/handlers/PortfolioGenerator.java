@@ -0,0 +1,134 @@
+package handlers;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates a synthetic portfolio directly into a save directory for load testing.
+ * Writes tenant.json, rent.json and expense.json in the same format as FileHandler.
+ * Records are streamed to disk as they are generated, nothing is kept in memory,
+ * and the same seed always produces the same files.
+ */
+public final class PortfolioGenerator {
+
+    private static final ObjectWriter writer = new ObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final String[] FIRST_NAMES = {"Alex", "Blair", "Casey", "Dana", "Emery", "Finley", "Gray", "Harper",
+            "Indy", "Jordan", "Kai", "Logan", "Morgan", "Noel", "Oakley", "Parker", "Quinn", "Riley", "Sage", "Taylor"};
+    private static final String[] LAST_NAMES = {"Nguyen", "Garcia", "Smith", "Chen", "Patel", "Johnson", "Lopez",
+            "Kim", "Brown", "Martinez", "Davis", "Wilson", "Lee", "Clark", "Lewis", "Young", "Walker", "Hall"};
+    private static final String[] CATEGORIES = {"Repairing", "Utilities", "Insurance", "Taxes", "Landscaping",
+            "Cleaning", "Pest Control", "Supplies"};
+    private static final String[][] PAYEES = {
+            {"Bob's Hardware", "Handy Plumbing", "A1 Roofing", "Quick Fix Appliances"},
+            {"Big Electric Co", "City Water", "Metro Gas", "Waste Management"},
+            {"State Farm", "Allied Insurance"},
+            {"County Assessor", "City Treasurer"},
+            {"Green Thumb", "Tree Masters"},
+            {"Sparkle Cleaning", "Carpet Kings"},
+            {"Bug Busters"},
+            {"Home Depot", "Lowe's", "Office Supply Co"}};
+
+    private PortfolioGenerator() {}
+
+    /**
+     * Generates the save files.
+     * Every apartment is occupied for the whole period by a series of tenants with leases of one to six years.
+     * Tenants pay monthly rent, occasionally late (skipped) or partially.
+     * @param directory Save directory to write to, created if missing.
+     * @param apartments Number of apartments in the portfolio.
+     * @param startYear First year of history.
+     * @param years Number of years of history.
+     * @param expensesPerMonth Number of expenses recorded per month across the portfolio.
+     * @param seed Random seed.
+     * @return True if successful, False otherwise.
+     */
+    public static boolean generate(File directory, int apartments, int startYear, int years, int expensesPerMonth, long seed) {
+        if (directory.mkdirs()) {
+            MenuHandler.systemMessage("No directory found, created directory...");
+        }
+
+        Random random = new Random(seed);
+        int months = years * 12;
+        long tenantCount = 0, rentCount = 0, expenseCount = 0;
+
+        try (JsonGenerator tenants = open(new File(directory, "tenant.json"));
+             JsonGenerator rent = open(new File(directory, "rent.json"));
+             JsonGenerator expenses = open(new File(directory, "expense.json"))) {
+
+            // Tenants and their Rent, one apartment at a time
+            for (int apt = 1; apt <= apartments; apt++) {
+                int month = 0;
+                while (month < months) {
+                    int lease = 12 + random.nextInt(61);
+                    int baseRent = 800 + random.nextInt(25) * 50;
+                    Tenant t = Tenant.fromRecord(randomUUID(random), randomName(random), apt);
+                    writer.writeValue(tenants, t);
+                    tenantCount++;
+
+                    for (int m = month; m < Math.min(month + lease, months); m++) {
+                        int roll = random.nextInt(100);
+                        if (roll < 3) { continue; }
+                        double payment = roll < 6 ? baseRent / 2.0 : baseRent;
+                        LocalDate date = LocalDate.of(startYear + m / 12, m % 12 + 1, 1);
+                        writer.writeValue(rent, Rent.fromRecord(t, date, payment));
+                        rentCount++;
+                    }
+                    month += lease;
+                }
+            }
+
+            // Expenses spread across categories and payees
+            for (int m = 0; m < months; m++) {
+                for (int i = 0; i < expensesPerMonth; i++) {
+                    int c = random.nextInt(CATEGORIES.length);
+                    String payee = PAYEES[c][random.nextInt(PAYEES[c].length)];
+                    LocalDate date = LocalDate.of(startYear + m / 12, m % 12 + 1, 1 + random.nextInt(28));
+                    double payment = (1000 + random.nextInt(500000)) / 100.0;
+                    writer.writeValue(expenses, Expense.fromRecord(date, CATEGORIES[c], payee, payment));
+                    expenseCount++;
+                }
+            }
+
+            tenants.writeEndArray();
+            rent.writeEndArray();
+            expenses.writeEndArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to generate the portfolio, please look at the above Stacktrace for more info.");
+            return false;
+        }
+
+        MenuHandler.systemMessage(String.format("Generated %d tenants, %d rent payments and %d expenses in %s",
+                tenantCount, rentCount, expenseCount, directory.getPath()));
+        return true;
+    }
+
+    private static JsonGenerator open(File file) throws IOException {
+        JsonGenerator generator = writer.getFactory().createGenerator(file, JsonEncoding.UTF8);
+        generator.writeStartArray();
+        return generator;
+    }
+
+    private static UUID randomUUID(Random random) {
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    private static String randomName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+}
@@ -0,0 +1,55 @@
+package handlers;
+
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+
+import java.time.LocalDate;
+
+/**
+ * Filters applied to the record displays of the Display Reports menu.
+ * Every field is optional, a null field matches everything.
+ * @param from First date to show (inclusive).
+ * @param to Last date to show (inclusive).
+ * @param aptNum Apartment number of the Tenant.
+ * @param text Text to search for in Tenant names, or in Expense categories and payees (ignores case).
+ */
+public record RecordFilter(LocalDate from, LocalDate to, Integer aptNum, String text) {
+
+    /**
+     * Filter that matches every record.
+     */
+    public static final RecordFilter NONE = new RecordFilter(null, null, null, null);
+
+    public RecordFilter {
+        if (text != null) {
+            text = text.isBlank() ? null : text.trim().toLowerCase();
+        }
+    }
+
+    public boolean matches(Tenant t) {
+        if (aptNum != null && t.getAptNum() != aptNum) { return false; }
+        return contains(t.getName());
+    }
+
+    public boolean matches(Rent r) {
+        if (!inRange(r.getDate())) { return false; }
+        return aptNum == null || (r.getTenant() != null && r.getTenant().getAptNum() == aptNum);
+    }
+
+    public boolean matches(Expense e) {
+        if (!inRange(e.getDate())) { return false; }
+        return contains(e.getCategory()) || (text != null && contains(e.getPayee()));
+    }
+
+    private boolean inRange(LocalDate date) {
+        if (from != null && date.isBefore(from)) { return false; }
+        return to == null || !date.isAfter(to);
+    }
+
+    private boolean contains(String s) {
+        if (text == null) { return true; }
+        return s != null && s.toLowerCase().contains(text);
+    }
+
+}
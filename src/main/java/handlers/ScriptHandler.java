@@ -0,0 +1,202 @@
+package handlers;
+
+import data.AnnualReport;
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs commands without menus, for scripts and nightly jobs.
+ * Commands are read one per line, arguments are separated by spaces and may be quoted with ".
+ * Blank lines and lines starting with # are ignored. The first command must be a login.
+ *
+ *   login <username> <password>
+ *   add-tenant <name> <apartment>
+ *   add-rent <apartment> <year> <month> <amount>
+ *   add-expense <MM/dd/yyyy> <category> <payee> <amount>
+ *   report <year>
+ */
+public class ScriptHandler {
+
+    private static ScriptHandler instance;
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("M/d/yyyy");
+    // Largest amount whose cents still fit in a long
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / 100.0;
+
+    private ScriptHandler() {}
+
+    /**
+     * Returns instance of ScriptHandler.
+     * Constructor cannot be accessed, use this for getting instance.
+     * @return ScriptHandler Instance
+     */
+    public static ScriptHandler getInstance() {
+        if (instance == null) {
+            instance = new ScriptHandler();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs every command from the input.
+     * Each command prints one result line ("OK ..." or "ERROR line N: ..."). Nothing is saved by this method.
+     * @param in Reader for the commands.
+     * @param out Stream the results are printed to, should be buffered.
+     * @return Number of commands that failed.
+     * @throws IOException If the commands cannot be read.
+     */
+    public int run(BufferedReader in, PrintStream out) throws IOException {
+        HashMap<String, String> loginDetails = null;
+        boolean loggedIn = false;
+        int failures = 0;
+        int lineNumber = 0;
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) { continue; }
+
+            List<String> args = tokenize(line);
+            String command = args.get(0).toLowerCase();
+            String result;
+            try {
+                if (command.equals("login")) {
+                    if (loginDetails == null) { loginDetails = FileHandler.getLoginDetails(); }
+                    if (!checkLogin(loginDetails, args)) {
+                        throw new IllegalArgumentException("incorrect username or password.");
+                    }
+                    loggedIn = true;
+                    result = "OK logged in";
+                } else if (!loggedIn) {
+                    throw new IllegalArgumentException("login is required before " + command + ".");
+                } else {
+                    result = switch (command) {
+                        case "add-tenant" -> addTenant(args);
+                        case "add-rent" -> addRent(args);
+                        case "add-expense" -> addExpense(args);
+                        case "report" -> report(args);
+                        default -> throw new IllegalArgumentException("unknown command " + command + ".");
+                    };
+                }
+                out.println(result);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                failures++;
+                out.println("ERROR line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    private boolean checkLogin(HashMap<String, String> loginDetails, List<String> args) {
+        expect(args, 3, "login <username> <password>");
+        if (loginDetails == null) { return false; }
+        DigestUtils sha = new DigestUtils("SHA3-256");
+        String username = sha.digestAsHex(args.get(1));
+        String password = sha.digestAsHex(args.get(2));
+        return loginDetails.containsKey(username) && loginDetails.get(username).equals(password);
+    }
+
+    private String addTenant(List<String> args) {
+        expect(args, 3, "add-tenant <name> <apartment>");
+        int apt = parseInt(args.get(2), "apartment");
+        if (apt < 0) { throw new IllegalArgumentException("apartment must be positive."); }
+        return "OK tenant " + Tenant.addTenant(args.get(1), apt);
+    }
+
+    private String addRent(List<String> args) {
+        expect(args, 5, "add-rent <apartment> <year> <month> <amount>");
+        Tenant t = Tenant.getCurrentTenant(parseInt(args.get(1), "apartment"));
+        if (t == null) { throw new IllegalArgumentException("there is no tenant in apartment " + args.get(1) + "."); }
+        int year = parseInt(args.get(2), "year");
+        int month = parseInt(args.get(3), "month");
+        double payment = parseAmount(args.get(4));
+        if (Rent.isDuplicate(t, year, month, payment)) {
+            throw new IllegalArgumentException("duplicate rent payment for " + t + ".");
+        }
+        Rent r = Rent.addRentIfAbsent(t, year, month, payment);
+        if (r == null) { throw new IllegalArgumentException("year or month is invalid."); }
+        return "OK rent " + r;
+    }
+
+    private String addExpense(List<String> args) {
+        expect(args, 5, "add-expense <MM/dd/yyyy> <category> <payee> <amount>");
+        LocalDate date = LocalDate.parse(args.get(1), DATE);
+        Expense e = Expense.addExpense(date.getYear(), date.getMonthValue(), date.getDayOfMonth(),
+                args.get(2), args.get(3), parseAmount(args.get(4)));
+        return "OK expense " + e;
+    }
+
+    private String report(List<String> args) {
+        expect(args, 2, "report <year>");
+        return AnnualReport.generateReport(parseInt(args.get(1), "year")).stripTrailing();
+    }
+
+    private static void expect(List<String> args, int count, String usage) {
+        if (args.size() != count) { throw new IllegalArgumentException("usage: " + usage); }
+    }
+
+    private static int parseInt(String s, String name) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number.");
+        }
+    }
+
+    /**
+     * Parses an amount, NaN, Infinity and amounts too large to count in cents are rejected.
+     */
+    private static double parseAmount(String s) {
+        double amount;
+        try {
+            amount = Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("amount must be a number.");
+        }
+        if (!Double.isFinite(amount) || Math.abs(amount) >= MAX_AMOUNT) {
+            throw new IllegalArgumentException("amount " + s + " is not a valid number.");
+        }
+        if (amount < 0) { throw new IllegalArgumentException("amount must be positive."); }
+        return amount;
+    }
+
+    /**
+     * Splits a command into arguments on spaces, text inside double quotes is kept together.
+     */
+    private static List<String> tokenize(String line) {
+        ArrayList<String> args = new ArrayList<>();
+        StringBuilder arg = new StringBuilder();
+        boolean quoted = false, inArg = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) { args.add(arg.toString()); }
+        return args;
+    }
+
+}
@@ -0,0 +1,214 @@
+package handlers;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import data.AnnualReport;
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Serves the data over HTTP as JSON, on the loopback address only.
+ * Every request must use HTTP Basic authentication with a login from login.json.
+ * Requests are read-only and run concurrently, one thread per request
+ * (virtual threads when the Java runtime has them).
+ *
+ *   GET /api/tenants
+ *   GET /api/rent[?year=YYYY]
+ *   GET /api/expenses[?year=YYYY]
+ *   GET /api/report?year=YYYY
+ */
+public class ServerHandler {
+
+    private static ServerHandler instance;
+    private static final ObjectWriter writer = FileHandler.getMapper().writer();
+    private HttpServer server;
+    private ExecutorService executor;
+    private HashMap<String, String> loginDetails;
+
+    private ServerHandler() {}
+
+    /**
+     * Returns instance of ServerHandler.
+     * Constructor cannot be accessed, use this for getting instance.
+     * @return ServerHandler Instance
+     */
+    public static ServerHandler getInstance() {
+        if (instance == null) {
+            instance = new ServerHandler();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts serving on the loopback address.
+     * @param port Port to listen on.
+     * @return True if the server started, False otherwise.
+     */
+    public boolean start(int port) {
+        if (server != null) { return true; }
+        loginDetails = FileHandler.getLoginDetails();
+        if (loginDetails == null) {
+            MenuHandler.systemMessage("Cannot start the server without login details.");
+            return false;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            e.printStackTrace();
+            MenuHandler.systemMessage("Failed to start the server on port " + port + ", please see System Administrator.");
+            return false;
+        }
+
+        server.createContext("/api/tenants", exchange -> handle(exchange, query -> Tenant.getTenants()));
+        server.createContext("/api/rent", exchange -> handle(exchange, query -> {
+            Integer year = getYear(query);
+            if (year == null) { return Rent.getRent(); }
+            return Rent.between(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+        }));
+        server.createContext("/api/expenses", exchange -> handle(exchange, query -> {
+            Integer year = getYear(query);
+            if (year == null) { return Expense.getExpenses(); }
+            return Expense.between(LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+        }));
+        server.createContext("/api/report", exchange -> handle(exchange, query -> {
+            Integer year = getYear(query);
+            if (year == null) { throw new IllegalArgumentException("year is required."); }
+            return AnnualReport.generateTotals(year);
+        }));
+
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.start();
+        MenuHandler.systemMessage("Serving JSON on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/api/");
+        return true;
+    }
+
+    /**
+     * Stops the server, waiting up to a second for requests in progress.
+     */
+    public void stop() {
+        if (server == null) { return; }
+        server.stop(1);
+        executor.shutdown();
+        server = null;
+        executor = null;
+    }
+
+    /**
+     * Authenticates the request, runs the query and writes its result as JSON.
+     * @param exchange Request / Response.
+     * @param query Produces the object to return from the raw query string.
+     */
+    private void handle(HttpExchange exchange, Function<String, Object> query) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendError(exchange, 405, "Only GET is supported.");
+                return;
+            }
+            if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"TERA\"");
+                sendError(exchange, 401, "Login required.");
+                return;
+            }
+
+            FileHandler.getInstance().awaitData();
+            Object result;
+            try {
+                URI uri = exchange.getRequestURI();
+                result = query.apply(uri.getRawQuery());
+            } catch (IllegalArgumentException | DateTimeException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                writer.writeValue(body, result == null ? List.of() : result);
+            }
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = FileHandler.getMapper().writeValueAsBytes(Map.of("error", message));
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Checks HTTP Basic credentials against the hashed logins.
+     */
+    private boolean isAuthorized(String header) {
+        if (header == null || !header.startsWith("Basic ")) { return false; }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        int split = credentials.indexOf(':');
+        if (split < 0) { return false; }
+        DigestUtils sha = new DigestUtils("SHA3-256");
+        String username = sha.digestAsHex(credentials.substring(0, split));
+        String password = sha.digestAsHex(credentials.substring(split + 1));
+        return password.equals(loginDetails.get(username));
+    }
+
+    /**
+     * Reads the year parameter from a query string.
+     * @return Year, null if there is no year parameter.
+     */
+    private static Integer getYear(String query) {
+        if (query == null) { return null; }
+        for (String param : query.split("&")) {
+            if (param.startsWith("year=")) {
+                try {
+                    return Integer.parseInt(param.substring(5));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("year must be a whole number.");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the executor requests run on.
+     * Uses one virtual thread per request when the runtime supports it (Java 21+),
+     * otherwise a cached pool of daemon threads.
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "ServerHandler-Request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+package handlers;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import data.Expense;
+import data.Rent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Reads and writes the Rent and Expense save files split into one sub-directory per month (shard).
+ * Used by FileHandler when sharded saves are turned on, Tenants and the dictionary stay in their own files.
+ *
+ * Layout:
+ *   save_data/shards/yyyy-MM/rent.json
+ *   save_data/shards/yyyy-MM/expense.json
+ * A shard only has the files of the records it holds. Shards are read and written in parallel on the IO pool,
+ * rows come back grouped by month in the order they were saved, by date within a month.
+ * A save only rewrites the files whose row count changed since they were read or written,
+ * which is enough because rows are never edited or removed in memory, only added or replaced by a load.
+ * The counts are forgotten by every load, and only kept for a load of the shards that put its rows into memory as read.
+ * Rows are counted per month through the date index of the ledger, only the rows of shards being written are read.
+ */
+final class ShardedLedger {
+
+    private static final String RENT = "rent.json", EXPENSE = "expense.json";
+    private static final ObjectReader rentReader = FileHandler.getMapper().readerFor(Rent.class);
+    private static final ObjectReader expenseReader = FileHandler.getMapper().readerFor(Expense.class);
+    private static final ObjectWriter rentWriter = FileHandler.getMapper().writerFor(Rent.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectWriter expenseWriter = FileHandler.getMapper().writerFor(Expense.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private final File dir;
+
+    // Rows in each shard file as last read or written
+    private final HashMap<YearMonth, Integer> rentRows = new HashMap<>();
+    private final HashMap<YearMonth, Integer> expenseRows = new HashMap<>();
+
+    /**
+     * Rent and Expense lists read from the shards.
+     */
+    record Ledger(ArrayList<Rent> rent, ArrayList<Expense> expenses) {}
+
+    /**
+     * Shard files being read, see read().
+     */
+    final class Reading {
+        private final TreeMap<YearMonth, Future<ArrayList<Rent>>> rent = new TreeMap<>();
+        private final TreeMap<YearMonth, Future<ArrayList<Expense>>> expenses = new TreeMap<>();
+        private final HashMap<YearMonth, Integer> rentRead = new HashMap<>();
+        private final HashMap<YearMonth, Integer> expensesRead = new HashMap<>();
+
+        /**
+         * Waits for every shard and joins them in month order.
+         * @return Ledger containing the Rent and Expense lists.
+         * @throws IOException If a shard cannot be read.
+         */
+        Ledger join() throws IOException {
+            return new Ledger(join(rent, rentRead), join(expenses, expensesRead));
+        }
+
+        /**
+         * Keeps the row counts of the shards read, call once the joined rows are in memory as they were read.
+         */
+        void loaded() {
+            synchronized (ShardedLedger.this) {
+                rentRows.clear();
+                rentRows.putAll(rentRead);
+                expenseRows.clear();
+                expenseRows.putAll(expensesRead);
+            }
+        }
+
+        private static <T> ArrayList<T> join(TreeMap<YearMonth, Future<ArrayList<T>>> tasks, Map<YearMonth, Integer> rows) throws IOException {
+            ArrayList<ArrayList<T>> shards = new ArrayList<>(tasks.size());
+            int size = 0;
+            for (var task : tasks.entrySet()) {
+                ArrayList<T> shard = FileHandler.await(task.getValue());
+                if (shard == null) { shard = new ArrayList<>(); }
+                rows.put(task.getKey(), shard.size());
+                shards.add(shard);
+                size += shard.size();
+            }
+            ArrayList<T> data = new ArrayList<>(size);
+            for (ArrayList<T> shard : shards) {
+                data.addAll(shard);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * @param dir Directory of the shards, created on the first save.
+     */
+    ShardedLedger(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns if there is a sharded save to load.
+     */
+    boolean exists() {
+        return !shards().isEmpty();
+    }
+
+    /**
+     * Starts reading every shard file on the pool and returns right away.
+     * @param pool Pool the files are read on.
+     * @return Reading to join() for the results.
+     */
+    Reading read(ExecutorService pool) {
+        Reading reading = new Reading();
+        for (YearMonth shard : shards()) {
+            File rent = new File(dir(shard), RENT);
+            File expense = new File(dir(shard), EXPENSE);
+            if (rent.exists()) {
+                reading.rent.put(shard, pool.submit(() -> FileHandler.readList(rent, rentReader, "Rent")));
+            }
+            if (expense.exists()) {
+                reading.expenses.put(shard, pool.submit(() -> FileHandler.readList(expense, expenseReader, "Expense")));
+            }
+        }
+        return reading;
+    }
+
+    /**
+     * Writes the shard files whose rows changed since they were last read or written, in parallel on the pool.
+     * Files of shards left without rows are deleted, along with empty shard directories.
+     * @param rent Rent to save.
+     * @param expenses Expenses to save.
+     * @param pool Pool the files are written on.
+     * @return Number of shard files written.
+     * @throws IOException If a shard file cannot be written, every shard is written again on the next save.
+     */
+    synchronized int write(List<Rent> rent, List<Expense> expenses, ExecutorService pool) throws IOException {
+        SortedMap<YearMonth, Integer> rentByShard = rent == null ? Collections.emptySortedMap() : Rent.countByMonth(rent);
+        SortedMap<YearMonth, Integer> expensesByShard = expenses == null ? Collections.emptySortedMap() : Expense.countByMonth(expenses);
+
+        ArrayList<Future<Object>> tasks = new ArrayList<>();
+        submit(RENT, rentByShard, rentRows, month -> Rent.inMonth(rent, month), rentWriter, pool, tasks);
+        submit(EXPENSE, expensesByShard, expenseRows, month -> Expense.inMonth(expenses, month), expenseWriter, pool, tasks);
+        try {
+            IOException failure = null;
+            for (Future<Object> task : tasks) {
+                try {
+                    FileHandler.await(task);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) { throw failure; }
+
+            // Remove what no longer has rows, e.g. months rolled into the archive
+            for (YearMonth shard : shards()) {
+                File shardDir = dir(shard);
+                if (!rentByShard.containsKey(shard)) { Files.deleteIfExists(new File(shardDir, RENT).toPath()); }
+                if (!expensesByShard.containsKey(shard)) { Files.deleteIfExists(new File(shardDir, EXPENSE).toPath()); }
+                String[] left = shardDir.list();
+                if (left != null && left.length == 0) { Files.delete(shardDir.toPath()); }
+            }
+        } catch (IOException e) {
+            rentRows.clear();
+            expenseRows.clear();
+            throw e;
+        }
+
+        rentRows.clear();
+        rentRows.putAll(rentByShard);
+        expenseRows.clear();
+        expenseRows.putAll(expensesByShard);
+        return tasks.size();
+    }
+
+    /**
+     * Deletes every shard, used when the ledger is saved in another format.
+     */
+    synchronized void delete() throws IOException {
+        for (YearMonth shard : shards()) {
+            File shardDir = dir(shard);
+            Files.deleteIfExists(new File(shardDir, RENT).toPath());
+            Files.deleteIfExists(new File(shardDir, EXPENSE).toPath());
+            Files.deleteIfExists(shardDir.toPath());
+        }
+        String[] left = dir.list();
+        if (left != null && left.length == 0) { Files.delete(dir.toPath()); }
+        rentRows.clear();
+        expenseRows.clear();
+    }
+
+    /**
+     * Forgets the row counts of the shard files, so the next write() rewrites every shard.
+     * Used when the ledger in memory is replaced by anything other than the shards as they were read.
+     */
+    synchronized void forget() {
+        rentRows.clear();
+        expenseRows.clear();
+    }
+
+    /**
+     * Returns the size of every shard file in bytes.
+     */
+    long bytes() {
+        long bytes = 0;
+        for (YearMonth shard : shards()) {
+            bytes += new File(dir(shard), RENT).length() + new File(dir(shard), EXPENSE).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Submits a write for every shard file of one type that changed.
+     * @param byShard Row count of each shard to save.
+     * @param rows Row count of each shard file as last read or written.
+     * @param inMonth Returns the rows of a shard, called on the pool for the shards written.
+     */
+    private <T> void submit(String name, SortedMap<YearMonth, Integer> byShard, Map<YearMonth, Integer> rows,
+                            Function<YearMonth, List<T>> inMonth, ObjectWriter writer,
+                            ExecutorService pool, List<Future<Object>> tasks) throws IOException {
+        for (var shard : byShard.entrySet()) {
+            File shardDir = dir(shard.getKey());
+            File file = new File(shardDir, name);
+            if (shard.getValue().equals(rows.get(shard.getKey())) && file.exists()) { continue; }
+            if (!shardDir.isDirectory()) { Files.createDirectories(shardDir.toPath()); }
+            YearMonth month = shard.getKey();
+            tasks.add(pool.submit(() -> { FileHandler.writeList(file, inMonth.apply(month), writer); return null; }));
+        }
+    }
+
+    /**
+     * Months of the shard directories on disk, in order.
+     */
+    private TreeSet<YearMonth> shards() {
+        TreeSet<YearMonth> shards = new TreeSet<>();
+        String[] names = dir.list();
+        if (names == null) { return shards; }
+        for (String name : names) {
+            if (!new File(dir, name).isDirectory()) { continue; }
+            try {
+                shards.add(YearMonth.parse(name));
+            } catch (DateTimeParseException e) {
+                // Not a shard
+            }
+        }
+        return shards;
+    }
+
+    private File dir(YearMonth shard) {
+        return new File(dir, shard.toString());
+    }
+
+}
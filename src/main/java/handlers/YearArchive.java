@@ -0,0 +1,242 @@
+package handlers;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import data.Expense;
+import data.Rent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Closed ledger years saved as one GZIP compressed JSON array per year and type,
+ * e.g. archive/rent-2019.json.gz and archive/expense-2019.json.gz.
+ *
+ * Rows are rolled into the archive in two steps so a crash never loses or repeats them:
+ * stage() writes the new year files as .next files, and commit() renames them over the year files
+ * once the save files without those rows are written. recover() finishes or drops a roll that was interrupted.
+ * Years are read back through readRent() / readExpenses() by ArchiveCache, which keeps the recently used ones in memory.
+ */
+public final class YearArchive {
+
+    private static final Pattern FILE_NAME = Pattern.compile("(rent|expense)-(-?\\d+)\\.json\\.gz(\\.next)?");
+    private static final String RENT = "rent", EXPENSE = "expense", STAGED = ".next";
+    private static final ObjectReader rentReader = FileHandler.getMapper().readerFor(Rent.class);
+    private static final ObjectReader expenseReader = FileHandler.getMapper().readerFor(Expense.class);
+    private static final ObjectWriter rentWriter = FileHandler.getMapper().writerFor(Rent.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectWriter expenseWriter = FileHandler.getMapper().writerFor(Expense.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private final File dir;
+
+    /**
+     * Rows left in the save files after a roll.
+     */
+    record Roll(List<Rent> rent, List<Expense> expenses) {}
+
+    /**
+     * @param dir Directory of the year files, created on the first roll.
+     */
+    YearArchive(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Returns the years that have been archived, staged years not included.
+     * @return Sorted set of years.
+     */
+    public SortedSet<Integer> years() {
+        TreeSet<Integer> years = new TreeSet<>();
+        for (Matcher m : list()) {
+            if (m.group(3) == null) { years.add(Integer.parseInt(m.group(2))); }
+        }
+        return years;
+    }
+
+    /**
+     * Reads the Rent of an archived year.
+     * @param year Year to read.
+     * @return ArrayList of Rent, empty if the year has none.
+     * @throws IOException If the year file cannot be read.
+     */
+    public ArrayList<Rent> readRent(int year) throws IOException {
+        return read(file(RENT, year), rentReader);
+    }
+
+    /**
+     * Reads the Expenses of an archived year.
+     * @param year Year to read.
+     * @return ArrayList of Expenses, empty if the year has none.
+     * @throws IOException If the year file cannot be read.
+     */
+    public ArrayList<Expense> readExpenses(int year) throws IOException {
+        return read(file(EXPENSE, year), expenseReader);
+    }
+
+    /**
+     * Copies the rows dated before a year into staged year files.
+     * Each staged file holds the rows already archived for its year followed by the new rows.
+     * The lists are not changed, the rows to keep are returned.
+     * @param firstActiveYear Rows dated before this year are staged.
+     * @param rent Rent loaded from the save files, may be null.
+     * @param expenses Expenses loaded from the save files, may be null.
+     * @return Rows dated from firstActiveYear on, null if no rows were staged.
+     */
+    Roll stage(int firstActiveYear, List<Rent> rent, List<Expense> expenses) throws IOException {
+        TreeMap<Integer, ArrayList<Rent>> rentByYear = new TreeMap<>();
+        TreeMap<Integer, ArrayList<Expense>> expensesByYear = new TreeMap<>();
+        List<Rent> keptRent = split(rent, firstActiveYear, r -> r.getDate().getYear(), rentByYear);
+        List<Expense> keptExpenses = split(expenses, firstActiveYear, e -> e.getDate().getYear(), expensesByYear);
+        if (rentByYear.isEmpty() && expensesByYear.isEmpty()) { return null; }
+
+        if (dir.mkdirs()) {
+            MenuHandler.systemMessage("No archive directory found, created directory...");
+        }
+        for (var year : rentByYear.entrySet()) {
+            ArrayList<Rent> merged = readRent(year.getKey());
+            merged.addAll(year.getValue());
+            write(staged(file(RENT, year.getKey())), merged, rentWriter);
+        }
+        for (var year : expensesByYear.entrySet()) {
+            ArrayList<Expense> merged = readExpenses(year.getKey());
+            merged.addAll(year.getValue());
+            write(staged(file(EXPENSE, year.getKey())), merged, expenseWriter);
+        }
+        return new Roll(keptRent, keptExpenses);
+    }
+
+    /**
+     * Replaces the year files with the staged ones. Call once the save files without the staged rows are written.
+     */
+    void commit() throws IOException {
+        for (Matcher m : list()) {
+            if (m.group(3) == null) { continue; }
+            File target = new File(dir, m.group().substring(0, m.group().length() - STAGED.length()));
+            Files.move(staged(target).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Finishes a roll that was interrupted by a crash.
+     * If the save files still hold rows of a staged year, they were never rewritten and the staged file is dropped,
+     * otherwise the staged file is committed.
+     * @param rent Rent loaded from the save files, may be null.
+     * @param expenses Expenses loaded from the save files, may be null.
+     */
+    void recover(List<Rent> rent, List<Expense> expenses) throws IOException {
+        for (Matcher m : list()) {
+            if (m.group(3) == null) { continue; }
+            int year = Integer.parseInt(m.group(2));
+            boolean saved = m.group(1).equals(RENT)
+                    ? rent != null && rent.stream().anyMatch(r -> r.getDate().getYear() == year)
+                    : expenses != null && expenses.stream().anyMatch(e -> e.getDate().getYear() == year);
+            File target = new File(dir, m.group().substring(0, m.group().length() - STAGED.length()));
+            if (saved) {
+                Files.delete(staged(target).toPath());
+            } else {
+                Files.move(staged(target).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    private List<Matcher> list() {
+        String[] names = dir.list();
+        if (names == null) { return Collections.emptyList(); }
+        ArrayList<Matcher> files = new ArrayList<>();
+        for (String name : names) {
+            Matcher m = FILE_NAME.matcher(name);
+            if (m.matches()) { files.add(m); }
+        }
+        return files;
+    }
+
+    private File file(String type, int year) {
+        return new File(dir, type + "-" + year + ".json.gz");
+    }
+
+    private static File staged(File file) {
+        return new File(file.getParentFile(), file.getName() + STAGED);
+    }
+
+    /**
+     * Groups the rows dated before a year by year, in their original order.
+     * @return The other rows, the list itself if there are no rows to group.
+     */
+    private static <T> List<T> split(List<T> data, int firstActiveYear, ToIntFunction<T> yearOf, TreeMap<Integer, ArrayList<T>> byYear) {
+        if (data == null) { return null; }
+        ArrayList<T> kept = new ArrayList<>();
+        for (T record : data) {
+            int year = yearOf.applyAsInt(record);
+            if (year < firstActiveYear) {
+                byYear.computeIfAbsent(year, y -> new ArrayList<>()).add(record);
+            } else {
+                kept.add(record);
+            }
+        }
+        return byYear.isEmpty() ? data : kept;
+    }
+
+    /**
+     * Reads a compressed JSON array one record at a time.
+     * @return ArrayList of records, empty if the file does not exist.
+     */
+    private static <T> ArrayList<T> read(File file, ObjectReader reader) throws IOException {
+        ArrayList<T> data = new ArrayList<>();
+        if (!file.exists()) { return data; }
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+             JsonParser parser = FileHandler.getMapper().getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) { return data; }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, file.getName() + " does not contain a list of records.");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                data.add(reader.readValue(parser));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Writes a compressed JSON array and syncs it to disk.
+     */
+    private static void write(File file, List<?> data, ObjectWriter writer) throws IOException {
+        try (FileOutputStream fileOut = new FileOutputStream(file)) {
+            GZIPOutputStream out = new GZIPOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+            try (JsonGenerator generator = FileHandler.getMapper().getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                generator.writeStartArray();
+                for (Object record : data) {
+                    writer.writeValue(generator, record);
+                }
+                generator.writeEndArray();
+                generator.flush();
+                out.finish();
+                out.flush();
+                fileOut.getFD().sync();
+            }
+        }
+    }
+
+}
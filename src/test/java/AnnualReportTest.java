@@ -0,0 +1,80 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import data.AnnualReport;
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import handlers.PortfolioGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class AnnualReportTest {
+
+    @Test
+    void BreakdownTotalsTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Annual Report: Breakdown Matches Totals\n|-----");
+
+        // Generate a portfolio large enough to be split into several chunks, and add it to memory
+        File dir = Files.createTempDirectory("portfolio").toFile();
+        try {
+            assert PortfolioGenerator.generate(dir, 1000, 1980, 6, 1000, 17L);
+            ObjectMapper mapper = new ObjectMapper();
+            List<Tenant> tenants = mapper.readValue(new File(dir, "tenant.json"), new TypeReference<>() {});
+            List<Rent> rent = mapper.readValue(new File(dir, "rent.json"), new TypeReference<>() {});
+            List<Expense> expenses = mapper.readValue(new File(dir, "expense.json"), new TypeReference<>() {});
+            HashMap<UUID, Tenant> added = new HashMap<>();
+            for (Tenant t : tenants) {
+                added.put(t.getId(), Tenant.addTenant(t.getName(), 10_000 + t.getAptNum()));
+            }
+            ArrayList<Rent> batch = new ArrayList<>(rent.size());
+            for (Rent r : rent) {
+                batch.add(Rent.fromRecord(added.get(r.getTenantId()), r.getDate(), r.getPayment()));
+            }
+            assert Rent.addRentBatch(batch) == rent.size();
+            assert Expense.addExpenseBatch(expenses) == expenses.size();
+            System.out.println("Rent: " + rent.size() + " Expenses: " + expenses.size());
+        } finally {
+            try (Stream<java.nio.file.Path> files = Files.walk(dir.toPath())) {
+                files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+            }
+        }
+
+        // Every grouping of the breakdown adds up to the totals of each year
+        AnnualReport.Breakdown breakdown = AnnualReport.generateBreakdown(1980, 1985);
+        double rentTotal = 0, expenseTotal = 0;
+        for (int year = 1980; year <= 1985; year++) {
+            AnnualReport.Totals totals = AnnualReport.generateTotals(year);
+            double rentOfYear = sum(breakdown.rentByMonth().subMap(YearMonth.of(year, 1), YearMonth.of(year + 1, 1)).values());
+            double expensesOfYear = sum(breakdown.expensesByMonth().subMap(YearMonth.of(year, 1), YearMonth.of(year + 1, 1)).values());
+            System.out.println(year + " Totals: " + totals + " Breakdown: " + rentOfYear + " / " + expensesOfYear);
+            assert Math.abs(rentOfYear - totals.earnings()) < 0.005;
+            assert Math.abs(expensesOfYear - totals.expenses()) < 0.005;
+            rentTotal += totals.earnings();
+            expenseTotal += totals.expenses();
+        }
+        assert Math.abs(sum(breakdown.rentByApartment().values()) - rentTotal) < 0.005;
+        assert Math.abs(sum(breakdown.expensesByCategory().values()) - expenseTotal) < 0.005;
+
+        System.out.println("|-----\n| TEST PASSED\n| Annual Report: Breakdown Matches Totals\n|-----");
+    }
+
+    private static double sum(Iterable<Double> amounts) {
+        double total = 0;
+        for (double amount : amounts) {
+            total += amount;
+        }
+        return total;
+    }
+
+}
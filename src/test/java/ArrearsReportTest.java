@@ -0,0 +1,103 @@
+import data.ArrearsReport;
+import data.Rent;
+import data.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+public class ArrearsReportTest {
+
+    /**
+     * Returns the arrears of one Tenant in 1961, null if they are not in arrears.
+     */
+    private static ArrearsReport.TenantArrears arrearsOf(Tenant t) {
+        ArrearsReport.Arrears a = ArrearsReport.generateArrears(1961, 1961);
+        return a.tenants().stream().filter(ta -> ta.tenant() == t).findFirst().orElse(null);
+    }
+
+    private static void pay(Tenant t, int year, int fromMonth, int toMonth, double amount) {
+        for (int month = fromMonth; month <= toMonth; month++) {
+            Rent.addRent(t, year, month, amount);
+        }
+    }
+
+    @Test
+    void MoveInTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Arrears: Mid-Year Move-In\n|-----");
+
+        // Moves in June with a prorated first payment
+        Tenant t = Tenant.addTenant("Move-In", 901);
+        pay(t, 1961, 6, 6, 500.00);
+        pay(t, 1961, 7, 12, 1000.00);
+
+        ArrearsReport.TenantArrears a = arrearsOf(t);
+        System.out.println("Arrears: " + a);
+        assert a != null && a.expected() == 1000.00;
+        assert a.missing().isEmpty();
+        assert a.partial().equals(Map.of(YearMonth.of(1961, 6), 500.00));
+
+        System.out.println("|-----\n| TEST PASSED\n| Arrears: Mid-Year Move-In\n|-----");
+    }
+
+    @Test
+    void RentChangeTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Arrears: Rent Increase Within the Window\n|-----");
+
+        // Rent goes up in July, no month is short of the rent in force
+        Tenant t = Tenant.addTenant("Rent Change", 902);
+        pay(t, 1960, 1, 12, 1000.00);
+        pay(t, 1961, 1, 6, 1000.00);
+        pay(t, 1961, 7, 12, 1100.00);
+
+        ArrearsReport.TenantArrears a = arrearsOf(t);
+        System.out.println("Arrears: " + a);
+        assert a == null;
+
+        System.out.println("|-----\n| TEST PASSED\n| Arrears: Rent Increase Within the Window\n|-----");
+    }
+
+    @Test
+    void PartialPaymentTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Arrears: Partial Payment\n|-----");
+
+        // April is paid short, in two payments
+        Tenant t = Tenant.addTenant("Partial", 903);
+        pay(t, 1961, 1, 3, 1000.00);
+        pay(t, 1961, 4, 4, 250.00);
+        Rent.addRent(t, 1961, 4, 150.00);
+        pay(t, 1961, 5, 12, 1000.00);
+
+        ArrearsReport.TenantArrears a = arrearsOf(t);
+        System.out.println("Arrears: " + a);
+        assert a != null && a.expected() == 1000.00;
+        assert a.missing().isEmpty();
+        assert a.partial().equals(Map.of(YearMonth.of(1961, 4), 400.00));
+
+        System.out.println("|-----\n| TEST PASSED\n| Arrears: Partial Payment\n|-----");
+    }
+
+    @Test
+    void PreviousYearMoveInTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Arrears: First Payment Before the Report\n|-----");
+
+        // Moved in December 1960, so January 1961 is owed
+        Tenant t = Tenant.addTenant("Previous Year", 904);
+        pay(t, 1960, 12, 12, 1000.00);
+        pay(t, 1961, 2, 12, 1000.00);
+
+        ArrearsReport.TenantArrears a = arrearsOf(t);
+        System.out.println("Arrears: " + a);
+        assert a != null && a.expected() == 1000.00;
+        assert a.missing().equals(List.of(YearMonth.of(1961, 1)));
+        assert a.partial().isEmpty();
+
+        System.out.println("|-----\n| TEST PASSED\n| Arrears: First Payment Before the Report\n|-----");
+    }
+
+}
@@ -1,8 +1,21 @@
+import data.ArchiveCache;
+import data.BinaryLedger;
+import data.Expense;
+import data.Rent;
 import data.Tenant;
 import handlers.FileHandler;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 public class FileHandlerTest {
 
@@ -40,4 +53,298 @@ public class FileHandlerTest {
         System.out.println("|-----\n| TEST PASSED\n| Tenant: Save and Load\n|-----");
     }
 
+    @Test
+    void JournalReplayTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Journal: Append and Replay\n|-----");
+
+        // Start from a compacted save with no journal
+        Tenant.addTenant("Snapshot", 10);
+        assert FileHandler.getInstance().saveData();
+
+        // Journal a Tenant and a Rent payment without saving
+        Tenant journaled = Tenant.addTenant("Journaled", 11);
+        assert FileHandler.getInstance().journalTenant(journaled);
+        assert FileHandler.getInstance().journalRent(Rent.addRent(journaled, 2022, 5, 1200.0));
+        List<Tenant> dataToSave = List.copyOf(Tenant.getTenants());
+
+        // Add a Tenant that is never journaled (should be gone after loading)
+        Tenant.addTenant("SHOULD BE GONE", 12);
+
+        // Assert that the journal is replayed on top of the save files...
+        assert FileHandler.getInstance().loadData();
+        System.out.println("Data Saved:  " + dataToSave);
+        System.out.println("Data Loaded: " + Tenant.getTenants());
+        assert Tenant.getTenants().equals(dataToSave);
+        assert Rent.getRent().get(Rent.getRent().size() - 1).getTenant().equals(journaled);
+
+        // Compact the journal
+        assert FileHandler.getInstance().saveData();
+
+        System.out.println("|-----\n| TEST PASSED\n| Journal: Append and Replay\n|-----");
+    }
+
+    @Test
+    void WriteBehindTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Write-Behind: Save and Flush\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+        file.setWriteBehind(true);
+
+        // Queue a save followed by journaled records
+        Tenant.addTenant("Queued", 20);
+        assert file.saveData();
+        for (int i = 0; i < 10; i++) {
+            assert file.journalTenant(Tenant.addTenant("Burst " + i, 21 + i));
+        }
+        List<Tenant> dataToSave = List.copyOf(Tenant.getTenants());
+
+        // Assert that everything queued reaches the disk...
+        assert file.flush();
+        file.setWriteBehind(false);
+
+        Tenant.addTenant("SHOULD BE GONE", 40);
+        assert file.loadData();
+        System.out.println("Data Saved:  " + dataToSave);
+        System.out.println("Data Loaded: " + Tenant.getTenants());
+        assert Tenant.getTenants().equals(dataToSave);
+
+        // Compact the journal
+        assert file.saveData();
+
+        System.out.println("|-----\n| TEST PASSED\n| Write-Behind: Save and Flush\n|-----");
+    }
+
+    @Test
+    void BinarySnapshotTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Binary Snapshot: Save and Load\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+        file.setBinarySnapshots(true);
+
+        // Create Testing Variables
+        Tenant t = Tenant.addTenant("Binary", 50);
+        Rent.addRent(t, 2021, 3, 1450.25);
+        Rent.addRent(t, 2021, 4, 1450.25);
+        Expense.addExpense(2021, 3, 14, "Utilities", "Big Electric Co", 310.10);
+        Expense.addExpense(2021, 3, 15, "Repairing", "Bob's Hardware", 42.0);
+        List<Rent> rentToSave = List.copyOf(Rent.getRent());
+        List<Expense> expensesToSave = List.copyOf(Expense.getExpenses());
+
+        // Assert that saving is successful...
+        assert file.saveData();
+
+        // Add throwaway Rent (should be gone after loading)
+        Rent.addRent(t, 2021, 5, 1.0);
+
+        // Assert that loading from the snapshot is successful...
+        assert file.loadData();
+        System.out.println("Rent Saved:  " + rentToSave);
+        System.out.println("Rent Loaded: " + Rent.getRent());
+        assert Rent.getRent().equals(rentToSave);
+        assert Expense.getExpenses().equals(expensesToSave);
+
+        // Convert back to JSON
+        file.setBinarySnapshots(false);
+        assert file.saveData();
+
+        System.out.println("|-----\n| TEST PASSED\n| Binary Snapshot: Save and Load\n|-----");
+    }
+
+    @Test
+    void ExpenseDictionaryTest() {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Expense Dictionary: Case Normalized and Saved\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+
+        // Create Testing Variables, spelled differently
+        Expense first = Expense.addExpense(2022, 6, 1, "Landscaping", "Green Thumb LLC", 80.0);
+        Expense second = Expense.addExpense(2022, 7, 1, "LANDSCAPING", "green thumb llc", 80.0);
+        System.out.println("Expenses Added: " + first + ", " + second);
+        assert second.getCategory().equals("Landscaping");
+        assert second.getPayee().equals("Green Thumb LLC");
+        long entries = Expense.getDictionary().stream().filter(s -> s.equalsIgnoreCase("landscaping")).count();
+        assert entries == 1;
+
+        // Assert that saving and loading keeps one spelling...
+        assert file.saveData();
+        assert file.loadData();
+        List<Expense> expenses = Expense.getExpenses();
+        System.out.println("Expenses Loaded: " + expenses.get(expenses.size() - 1));
+        assert expenses.get(expenses.size() - 1).getCategory().equals("Landscaping");
+        assert expenses.get(expenses.size() - 1).equals(second);
+
+        // Assert that a spelling that was never saved is dropped by the next load...
+        Expense.addExpense(2022, 8, 1, "Unsaved Category", "Unsaved Payee", 1.0);
+        assert file.loadData();
+        assert Expense.getDictionary().stream().noneMatch(s -> s.equalsIgnoreCase("unsaved category"));
+
+        System.out.println("|-----\n| TEST PASSED\n| Expense Dictionary: Case Normalized and Saved\n|-----");
+    }
+
+    @Test
+    void InvalidRentTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Load: Rent of an Unknown Tenant Fails\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+
+        // Create Testing Variables
+        Tenant t = Tenant.addTenant("Invalid", 905);
+        Rent.addRent(t, 2021, 6, 800.0);
+        assert file.saveData();
+
+        // Assert that loading fails when a Rent points at a Tenant that was never saved...
+        Path rent = Path.of("save_data", "rent.json");
+        String saved = Files.readString(rent);
+        try {
+            Files.writeString(rent, saved.replace(t.getId().toString(), UUID.randomUUID().toString()));
+            assert !file.loadData();
+        } finally {
+            Files.writeString(rent, saved);
+        }
+
+        // Assert that the restored files load again...
+        assert file.loadData();
+        assert Rent.isDuplicate(t, 2021, 6, 800.0);
+
+        System.out.println("|-----\n| TEST PASSED\n| Load: Rent of an Unknown Tenant Fails\n|-----");
+    }
+
+    @Test
+    void ArchiveTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Archive: Roll Closed Years and Read on Demand\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+        Path archive = Files.createTempDirectory("archive");
+        try {
+            rollAndRead(file, archive);
+        } finally {
+            // Go back to the default archive and remove the test archive
+            file.setArchive(0, null);
+            assert file.loadData();
+            try (Stream<Path> files = Files.walk(archive)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+
+        System.out.println("|-----\n| TEST PASSED\n| Archive: Roll Closed Years and Read on Demand\n|-----");
+    }
+
+    private static void rollAndRead(FileHandler file, Path archive) {
+
+        // Create Testing Variables in a closed year
+        Tenant t = Tenant.addTenant("Archived", 60);
+        Rent.addRent(t, 1999, 1, 975.50);
+        Expense.addExpense(1999, 1, 2, "Archived", "Old Payee", 12.34);
+        assert file.saveData();
+
+        // Assert that loading rolls the closed year into the archive...
+        file.setArchive(20, archive.toFile());
+        assert file.loadData();
+        file.setArchive(0);
+        System.out.println("Archived Years: " + ArchiveCache.getYears());
+        assert Files.exists(archive.resolve("rent-1999.json.gz"));
+        assert ArchiveCache.isArchived(1999);
+        assert Rent.getRent().stream().noneMatch(r -> r.getDate().getYear() == 1999);
+        assert Expense.getExpenses().stream().noneMatch(e -> e.getDate().getYear() == 1999);
+
+        // Assert that the archived year is read when asked for...
+        List<Rent> rent = Rent.between(LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31));
+        List<Expense> expenses = Expense.between(LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31));
+        System.out.println("Rent Archived:     " + rent);
+        System.out.println("Expenses Archived: " + expenses);
+        assert rent.stream().anyMatch(r -> r.getTenant().equals(t) && r.getPayment() == 975.50);
+        assert expenses.stream().anyMatch(e -> e.getPayee().equals("Old Payee") && e.getPayment() == 12.34);
+        assert Rent.isDuplicate(t, 1999, 1, 975.50);
+        assert Rent.getTotalByYear(1999) >= 975.50;
+    }
+
+    @Test
+    void ShardTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Shards: Save by Month and Rewrite Only Changes\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+        Path shards = Path.of("save_data", "shards");
+
+        // Create Testing Variables in two months
+        Tenant t = Tenant.addTenant("Sharded", 70);
+        Rent.addRent(t, 2021, 3, 800.0);
+        Rent.addRent(t, 2021, 4, 800.0);
+        file.setSharded(true);
+        assert file.saveData();
+        Path march = shards.resolve("2021-03").resolve("rent.json");
+        Path april = shards.resolve("2021-04").resolve("rent.json");
+        assert Files.exists(march) && Files.exists(april);
+        assert !Files.exists(Path.of("save_data", "rent.json"));
+
+        // Assert that a save only rewrites the month that changed...
+        Object marchKey = Files.readAttributes(march, BasicFileAttributes.class).fileKey();
+        Object aprilKey = Files.readAttributes(april, BasicFileAttributes.class).fileKey();
+        Rent.addRent(t, 2021, 4, 25.0);
+        assert file.saveData();
+        System.out.println("March Rewritten: " + !marchKey.equals(Files.readAttributes(march, BasicFileAttributes.class).fileKey()));
+        System.out.println("April Rewritten: " + !aprilKey.equals(Files.readAttributes(april, BasicFileAttributes.class).fileKey()));
+        assert marchKey.equals(Files.readAttributes(march, BasicFileAttributes.class).fileKey());
+        assert !aprilKey.equals(Files.readAttributes(april, BasicFileAttributes.class).fileKey());
+
+        // Assert that loading the shards brings back every payment...
+        assert file.loadData();
+        assert Rent.isDuplicate(t, 2021, 3, 800.0);
+        assert Rent.isDuplicate(t, 2021, 4, 800.0);
+        assert Rent.isDuplicate(t, 2021, 4, 25.0);
+
+        // Assert that saving without shards converts back to single files...
+        file.setSharded(false);
+        assert file.saveData();
+        assert Files.exists(Path.of("save_data", "rent.json"));
+        assert !Files.exists(shards);
+
+        System.out.println("|-----\n| TEST PASSED\n| Shards: Save by Month and Rewrite Only Changes\n|-----");
+    }
+
+    @Test
+    void ShardReloadTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Shards: Rewritten After Loading Another Format\n|-----");
+
+        FileHandler file = FileHandler.getInstance();
+
+        // Create Testing Variables in sharded save files
+        Tenant t = Tenant.addTenant("Resharded", 906);
+        Rent.addRent(t, 2020, 9, 800.0);
+        file.setSharded(true);
+        assert file.saveData();
+        assert file.loadData();
+
+        // Replace the payment in a binary snapshot, same number of rows in every month
+        ArrayList<Rent> rent = new ArrayList<>();
+        for (Rent r : Rent.getRent()) {
+            boolean replaced = r.getTenant().equals(t);
+            rent.add(replaced ? Rent.fromRecord(t, r.getDate(), 900.0) : r);
+        }
+        BinaryLedger.write(Path.of("save_data", "ledger.bin").toFile(), Tenant.getTenants(), rent, Expense.getExpenses());
+
+        // Assert that the shards are rewritten from the snapshot loaded in their place...
+        try {
+            assert file.loadData();
+            assert Rent.isDuplicate(t, 2020, 9, 900.0);
+            assert file.saveData();
+            assert file.loadData();
+            System.out.println("Rent Reloaded: " + Rent.between(LocalDate.of(2020, 9, 1), LocalDate.of(2020, 9, 30)));
+            assert Rent.isDuplicate(t, 2020, 9, 900.0);
+            assert !Rent.isDuplicate(t, 2020, 9, 800.0);
+        } finally {
+            file.setSharded(false);
+            assert file.saveData();
+        }
+
+        System.out.println("|-----\n| TEST PASSED\n| Shards: Rewritten After Loading Another Format\n|-----");
+    }
+
 }
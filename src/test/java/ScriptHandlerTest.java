@@ -0,0 +1,49 @@
+import data.Rent;
+import data.Tenant;
+import handlers.ScriptHandler;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+public class ScriptHandlerTest {
+
+    @Test
+    void InvalidAmountTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| Script: Invalid Amounts Rejected\n|-----");
+
+        String script = String.join("\n",
+                "login admin password",
+                "add-tenant \"Scripted\" 811",
+                "add-rent 811 2020 1 NaN",
+                "add-rent 811 2020 1 Infinity",
+                "add-rent 811 2020 1 1e300",
+                "add-expense 01/02/2020 Repairs Plumber -Infinity",
+                "add-rent 811 2020 1 950.00");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        int failures = ScriptHandler.getInstance().run(new BufferedReader(new StringReader(script)), out);
+        String output = bytes.toString(StandardCharsets.UTF_8);
+        System.out.println(output);
+
+        // Every bad amount is an error, only the valid payment is added
+        assert failures == 4;
+        assert output.contains("ERROR line 3: amount NaN is not a valid number.");
+        assert output.contains("ERROR line 5: amount 1e300 is not a valid number.");
+        assert output.contains("ERROR line 6:");
+        Tenant t = Tenant.getCurrentTenant(811);
+        long paid = Rent.between(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31)).stream()
+                .filter(r -> r.getTenant() == t)
+                .count();
+        assert paid == 1;
+
+        System.out.println("|-----\n| TEST PASSED\n| Script: Invalid Amounts Rejected\n|-----");
+    }
+
+}
@@ -0,0 +1,161 @@
+package data;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+public class JsonCodecsTest {
+
+    // Save files as written and read by the codecs
+    private static final ObjectMapper codecs = new ObjectMapper();
+    // Save files as written and read by the annotated fields before the codecs
+    private static final ObjectMapper beans = new ObjectMapper()
+            .addMixIn(Tenant.class, TenantBean.class)
+            .addMixIn(Rent.class, RentBean.class)
+            .addMixIn(Expense.class, ExpenseBean.class);
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private abstract static class TenantBean {}
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private abstract static class RentBean {
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
+        @JsonDeserialize(using = LocalDateDeserializer.class)
+        @JsonSerialize(using = LocalDateSerializer.class)
+        private LocalDate date;
+        @JsonIgnore
+        private Tenant tenant;
+
+        @JsonIgnore
+        abstract Tenant getTenant();
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private abstract static class ExpenseBean {
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
+        @JsonDeserialize(using = LocalDateDeserializer.class)
+        @JsonSerialize(using = LocalDateSerializer.class)
+        private LocalDate date;
+        @JsonIgnore
+        private int categoryId;
+        @JsonIgnore
+        private int payeeId;
+    }
+
+    private static boolean sameRent(Rent a, Rent b) {
+        return Objects.equals(a.getTenantId(), b.getTenantId())
+                && Objects.equals(a.getDate(), b.getDate())
+                && a.getPayment() == b.getPayment();
+    }
+
+    private static boolean sameExpense(Expense a, Expense b) {
+        return Objects.equals(a.getDate(), b.getDate())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && Objects.equals(a.getPayee(), b.getPayee())
+                && a.getPayment() == b.getPayment();
+    }
+
+    @Test
+    void TenantRoundTripTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| JSON Codecs: Tenant Round Trip\n|-----");
+
+        List<Tenant> tenants = List.of(
+                Tenant.fromRecord(UUID.randomUUID(), "Codec \"Tenant\"", 811),
+                Tenant.fromRecord(null, null, 0));
+
+        String json = codecs.writeValueAsString(tenants);
+        System.out.println(json);
+        assert json.equals(beans.writeValueAsString(tenants));
+
+        // Each reads what the other wrote
+        for (List<Tenant> read : List.of(
+                codecs.readValue(json, new TypeReference<ArrayList<Tenant>>() {}),
+                beans.readValue(json, new TypeReference<ArrayList<Tenant>>() {}))) {
+            assert read.size() == tenants.size();
+            for (int i = 0; i < read.size(); i++) {
+                assert Objects.equals(read.get(i).getId(), tenants.get(i).getId());
+                assert Objects.equals(read.get(i).getName(), tenants.get(i).getName());
+                assert read.get(i).getAptNum() == tenants.get(i).getAptNum();
+            }
+        }
+
+        System.out.println("|-----\n| TEST PASSED\n| JSON Codecs: Tenant Round Trip\n|-----");
+    }
+
+    @Test
+    void RentRoundTripTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| JSON Codecs: Rent Round Trip\n|-----");
+
+        Tenant tenant = Tenant.fromRecord(UUID.randomUUID(), "Codec", 811);
+        List<Rent> rent = List.of(
+                Rent.fromRecord(tenant, LocalDate.of(2021, 3, 1), 975.5),
+                Rent.fromRecord(tenant, LocalDate.of(999, 12, 31), 0.1),
+                Rent.fromRecord((UUID) null, LocalDate.of(2021, 4, 1), 975),
+                Rent.fromRecord((UUID) null, null, 0));
+
+        String json = codecs.writeValueAsString(rent);
+        System.out.println(json);
+        assert json.equals(beans.writeValueAsString(rent));
+
+        for (List<Rent> read : List.of(
+                codecs.readValue(json, new TypeReference<ArrayList<Rent>>() {}),
+                beans.readValue(json, new TypeReference<ArrayList<Rent>>() {}))) {
+            assert read.size() == rent.size();
+            for (int i = 0; i < read.size(); i++) {
+                assert sameRent(read.get(i), rent.get(i));
+            }
+        }
+
+        System.out.println("|-----\n| TEST PASSED\n| JSON Codecs: Rent Round Trip\n|-----");
+    }
+
+    @Test
+    void ExpenseRoundTripTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| JSON Codecs: Expense Round Trip\n|-----");
+
+        // Expenses read back from the ledger carry the dictionary ids of their category and payee
+        Expense.addExpense(1957, 6, 1, "Codec Repairs", "Codec Plumber", 120.25);
+        Expense.addExpense(1957, 6, 2, "codec repairs", "Codec Roofer", 80);
+        List<Expense> expenses = new ArrayList<>(Expense.between(LocalDate.of(1957, 6, 1), LocalDate.of(1957, 6, 2)));
+        assert expenses.size() == 2;
+        expenses.add(Expense.fromRecord(LocalDate.of(2021, 3, 1), "Utilities", "Water \u00e9 Co", 310.1));
+        expenses.add(Expense.fromRecord(null, null, null, 0));
+
+        String json = codecs.writeValueAsString(expenses);
+        System.out.println(json);
+        assert json.equals(beans.writeValueAsString(expenses));
+        assert !json.contains("categoryId") && !json.contains("payeeId") && !json.contains("dictionary");
+
+        for (List<Expense> read : List.of(
+                codecs.readValue(json, new TypeReference<ArrayList<Expense>>() {}),
+                beans.readValue(json, new TypeReference<ArrayList<Expense>>() {}))) {
+            assert read.size() == expenses.size();
+            for (int i = 0; i < read.size(); i++) {
+                assert sameExpense(read.get(i), expenses.get(i));
+            }
+        }
+
+        System.out.println("|-----\n| TEST PASSED\n| JSON Codecs: Expense Round Trip\n|-----");
+    }
+}
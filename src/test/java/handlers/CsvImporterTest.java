@@ -0,0 +1,109 @@
+package handlers;
+
+import data.Expense;
+import data.Rent;
+import data.Tenant;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvImporterTest {
+
+    private static File csv(String... lines) throws IOException {
+        File file = Files.createTempFile("import", ".csv").toFile();
+        file.deleteOnExit();
+        Files.write(file.toPath(), List.of(lines));
+        return file;
+    }
+
+    @Test
+    void HeaderTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| CSV Import: Header Detection\n|-----");
+
+        Tenant.addTenant("Importer", 801);
+
+        // A line of column names is skipped
+        ArrayList<Rent> rent = new ArrayList<>();
+        ArrayList<String> errors = new ArrayList<>();
+        assert CsvImporter.readRent(csv("Apartment,Year,Month,Amount", "801,2020,1,950.00"), rent, errors);
+        System.out.println("Rows: " + rent.size() + " Errors: " + errors);
+        assert rent.size() == 1 && errors.isEmpty();
+
+        ArrayList<Expense> expenses = new ArrayList<>();
+        assert CsvImporter.readExpenses(csv("\"DATE\",\"Category\",\"Payee\",\"Payment\"", "01/15/2020,Repairs,Plumber,120.00"), expenses, errors);
+        assert expenses.size() == 1 && errors.isEmpty();
+
+        // A first line with a malformed amount is a row, not a header
+        rent.clear();
+        assert CsvImporter.readRent(csv("801,2020,1,95O.00", "801,2020,2,950.00"), rent, errors);
+        System.out.println("Rows: " + rent.size() + " Errors: " + errors);
+        assert rent.size() == 1 && errors.size() == 1 && errors.get(0).startsWith("Line 1:");
+
+        System.out.println("|-----\n| TEST PASSED\n| CSV Import: Header Detection\n|-----");
+    }
+
+    @Test
+    void InvalidLineTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| CSV Import: Invalid Lines Reported\n|-----");
+
+        Tenant.addTenant("Importer", 802);
+
+        ArrayList<Rent> rent = new ArrayList<>();
+        ArrayList<String> errors = new ArrayList<>();
+        assert CsvImporter.readRent(csv(
+                "802,2020,1,NaN",
+                "802,2020,2,1e400",
+                "899,2020,3,950.00",
+                "802,1000000000,4,950.00",
+                "802,2020,5,950.00"), rent, errors);
+        System.out.println("Rows: " + rent.size() + " Errors: " + errors);
+        assert rent.size() == 1 && errors.size() == 4;
+        assert errors.get(2).startsWith("Line 3: no tenant found");
+        assert errors.get(3).startsWith("Line 4:");
+
+        ArrayList<Expense> expenses = new ArrayList<>();
+        errors.clear();
+        assert CsvImporter.readExpenses(csv(
+                "13/45/2020,Repairs,Plumber,120.00",
+                "+10000000-01-01,Repairs,Plumber,120.00",
+                "03/01/2020,Repairs,Plumber,\"$1,2O0\"",
+                "03/02/2020,Repairs,Plumber,\"$1,200.00\""), expenses, errors);
+        System.out.println("Rows: " + expenses.size() + " Errors: " + errors);
+        assert expenses.size() == 1 && expenses.get(0).getPayment() == 1200.00;
+        assert errors.size() == 3 && errors.get(0).startsWith("Line 1:") && errors.get(2).startsWith("Line 3:");
+
+        System.out.println("|-----\n| TEST PASSED\n| CSV Import: Invalid Lines Reported\n|-----");
+    }
+
+    @Test
+    void DuplicateTest() throws IOException {
+
+        System.out.println("|-----\n| RUNNING TEST\n| CSV Import: Duplicates Skipped\n|-----");
+
+        Tenant t = Tenant.addTenant("Importer", 803);
+        Rent.addRent(t, 2020, 6, 950.00);
+
+        // Already recorded, new, and new again within the file
+        ArrayList<Rent> rent = new ArrayList<>();
+        ArrayList<String> errors = new ArrayList<>();
+        assert CsvImporter.readRent(csv("803,2020,6,950.00", "803,2020,7,950.00", "803,2020,7,950"), rent, errors);
+        ArrayList<Rent> unique = CsvImporter.withoutDuplicates(rent);
+        System.out.println("Rows: " + rent.size() + " Unique: " + unique);
+        assert rent.size() == 3 && unique.size() == 1;
+        assert unique.get(0).getDate().getMonthValue() == 7;
+
+        // Once added, the payment is a duplicate of the one in memory
+        assert Rent.addRentBatch(unique) == 1;
+        assert Rent.isDuplicate(t, 2020, 7, 950.00);
+        assert CsvImporter.withoutDuplicates(rent).isEmpty();
+
+        System.out.println("|-----\n| TEST PASSED\n| CSV Import: Duplicates Skipped\n|-----");
+    }
+
+}